@@ -0,0 +1,63 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.benchmark;
+
+import ee.datanor.httpclient.logger.util.EscapeUtil;
+import ee.datanor.httpclient.logger.util.HeaderSelector;
+import ee.datanor.httpclient.logger.util.HeaderUtil;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Set;
+
+@State(Scope.Benchmark)
+public class EscapeBenchmark {
+    private final String clean = Fixtures.SMALL_JSON;
+    private final String multiline = Fixtures.SMALL_JSON.replace(",", ",\n\t");
+    private final Header[] headers = {
+        new BasicHeader("Content-Type", "application/json"),
+        new BasicHeader("Accept", "application/json"),
+        new BasicHeader("Authorization", "Bearer secret"),
+        new BasicHeader("Location", "/customers/42"),
+        new BasicHeader("Date", "Mon, 01 Jan 2024 00:00:00 GMT")
+    };
+    private final Set<String> includedHeaders = Set.of("content-type", "location");
+    private final HeaderSelector headerSelector = HeaderSelector.of(includedHeaders).withPolicy("authorization", HeaderSelector.ValuePolicy.PREFIX);
+
+    @Benchmark
+    public String escapeClean() {
+        return EscapeUtil.escape(clean);
+    }
+
+    @Benchmark
+    public String escapeMultiline() {
+        return EscapeUtil.escape(multiline);
+    }
+
+    @Benchmark
+    public String headersToString() {
+        return HeaderUtil.headersToString(headers, includedHeaders);
+    }
+
+    @Benchmark
+    public String headerSelector() {
+        return headerSelector.select(headers);
+    }
+}
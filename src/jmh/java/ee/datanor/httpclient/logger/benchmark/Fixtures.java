@@ -0,0 +1,114 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.benchmark;
+
+import ee.datanor.httpclient.logger.timing.ExchangeTiming;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.entity.BasicHttpEntity;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpRequest;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory exchanges shared by the benchmarks. Entities are created per exchange as the processors consume them.
+ */
+final class Fixtures {
+    static final HttpHost TARGET = new HttpHost("https", "api.example.com", 443);
+    static final String SMALL_JSON = "{\"id\":42,\"name\":\"Jane Doe\",\"password\":\"secret\",\"iban\":\"EE382200221020145685\"}";
+    static final String LARGE_JSON = largeJson(64 * 1024);
+
+    private Fixtures() { }
+
+    /**
+     * @param size {@code small} or {@code large}
+     * @param encoding {@code plain} or {@code gzip}
+     */
+    static byte[] body(String size, String encoding) {
+        byte[] body = ("large".equals(size) ? LARGE_JSON : SMALL_JSON).getBytes(StandardCharsets.UTF_8);
+        return "gzip".equals(encoding) ? gzip(body) : body;
+    }
+
+    static String contentEncoding(String encoding) {
+        return "gzip".equals(encoding) ? "gzip" : null;
+    }
+
+    static ClassicHttpRequest request(byte[] body, String contentEncoding) {
+        BasicClassicHttpRequest request = new BasicClassicHttpRequest("POST", TARGET,
+                "/customers/9d1f6c2e-3b4a-4f5e-8a7b-1c2d3e4f5a6b/orders/123?token=secret&page=2");
+        request.addHeader("Content-Type", "application/json");
+        request.addHeader("Accept", "application/json");
+        request.addHeader("User-Agent", "benchmark");
+        if (contentEncoding != null) {
+            request.addHeader("Content-Encoding", contentEncoding);
+        }
+        request.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON, contentEncoding));
+        return request;
+    }
+
+    static ClassicHttpResponse response(byte[] body, String contentEncoding) {
+        BasicClassicHttpResponse response = new BasicClassicHttpResponse(200, "OK");
+        response.addHeader("Content-Type", "application/json");
+        response.addHeader("Location", "/customers/42");
+        response.addHeader("Date", "Mon, 01 Jan 2024 00:00:00 GMT");
+        if (contentEncoding != null) {
+            response.addHeader("Content-Encoding", contentEncoding);
+        }
+        response.setEntity(new BasicHttpEntity(new ByteArrayInputStream(body), body.length, ContentType.APPLICATION_JSON, contentEncoding));
+        return response;
+    }
+
+    /**
+     * Context of an exchange on its way to the target, with the route and timing the exec handler would set.
+     */
+    static HttpContext context() {
+        HttpClientContext context = HttpClientContext.create();
+        context.setAttribute(HttpClientContext.HTTP_ROUTE, new HttpRoute(TARGET));
+        ExchangeTiming.start(context);
+        return context;
+    }
+
+    private static String largeJson(int length) {
+        StringBuilder json = new StringBuilder(length + SMALL_JSON.length()).append('[');
+        while (json.length() < length) {
+            json.append(SMALL_JSON).append(',');
+        }
+        return json.append(SMALL_JSON).append(']').toString();
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
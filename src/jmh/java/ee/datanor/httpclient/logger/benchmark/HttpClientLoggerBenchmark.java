@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.benchmark;
+
+import ee.datanor.httpclient.logger.HttpClientLogger;
+import ee.datanor.httpclient.logger.event.RecordLayout;
+import ee.datanor.httpclient.logger.masker.JsonBodyMasker;
+import ee.datanor.httpclient.logger.processor.request.RequestBodyLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestHashLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestHeadersLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestLineLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestTimeLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseBodyLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseDurationLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseHeadersLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseStatusLogProcessor;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A full {@code logRequest} and {@code logResponse} round with the processors of the README. The loggers are enabled
+ * and write to a null appender (see {@code log4j2.xml}), so the records are rendered as in production.
+ */
+@State(Scope.Benchmark)
+public class HttpClientLoggerBenchmark {
+    private static final RecordLayout LAYOUT = RecordLayout.of(
+            "REQ\t%X{HC_REQUEST_TIME}\t%X{HC_REQUEST_HASH}\t%X{HC_REQUEST_LINE}\t%X{HC_REQUEST_HEADERS}\t%X{HC_REQUEST_BODY}",
+            "RES\t%X{HC_REQUEST_HASH}\t%X{HC_REQUEST_LINE}\t%X{HC_RESPONSE_STATUS}\t%X{HC_RESPONSE_HEADERS}\t%X{HC_RESPONSE_DURATION}\t%X{HC_RESPONSE_BODY}");
+
+    @Param({"small", "large"})
+    public String size;
+
+    @Param({"plain", "gzip"})
+    public String encoding;
+
+    @Param({"mdc", "keyValue", "template"})
+    public String output;
+
+    private HttpClientLogger httpClientLogger;
+    private byte[] body;
+    private String contentEncoding;
+
+    @Setup
+    public void setUp() {
+        Set<String> mediaSubtypes = Set.of("json", "xml");
+        JsonBodyMasker masker = new JsonBodyMasker(Set.of("password", "iban"));
+        httpClientLogger = HttpClientLogger.builder()
+                .requestLogProcessors(List.of(
+                        new RequestTimeLogProcessor(),
+                        new RequestHashLogProcessor(),
+                        new RequestLineLogProcessor(),
+                        new RequestHeadersLogProcessor(),
+                        new RequestBodyLogProcessor(2048, Set.of(masker), mediaSubtypes)))
+                .responseLogProcessors(List.of(
+                        new ResponseStatusLogProcessor(),
+                        new ResponseHeadersLogProcessor(),
+                        new ResponseDurationLogProcessor(),
+                        new ResponseBodyLogProcessor(2048, mediaSubtypes, Set.of(masker))))
+                .mdcBridge(!"keyValue".equals(output))
+                .recordLayout("template".equals(output) ? LAYOUT : null)
+                .build();
+        body = Fixtures.body(size, encoding);
+        contentEncoding = Fixtures.contentEncoding(encoding);
+    }
+
+    @Benchmark
+    public HttpContext exchange() throws IOException {
+        HttpContext context = Fixtures.context();
+        httpClientLogger.logRequest(Fixtures.request(body, contentEncoding), context);
+        ClassicHttpResponse response = Fixtures.response(body, contentEncoding);
+        httpClientLogger.logResponse(response, context);
+        EntityUtils.consume(response.getEntity());
+        httpClientLogger.cleanup();
+        return context;
+    }
+}
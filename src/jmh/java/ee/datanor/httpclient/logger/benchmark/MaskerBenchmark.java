@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.benchmark;
+
+import ee.datanor.httpclient.logger.masker.BodyMasker;
+import ee.datanor.httpclient.logger.masker.JsonBodyMasker;
+import ee.datanor.httpclient.logger.masker.MaskingEngine;
+import ee.datanor.httpclient.logger.masker.ParameterMasker;
+import ee.datanor.httpclient.logger.masker.UrlMasker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Set;
+
+@State(Scope.Benchmark)
+public class MaskerBenchmark {
+    private static final String URL = "https://api.example.com/customers/42/orders?token=secret&page=2&password=p%40ss";
+
+    @Param({"small", "large"})
+    public String size;
+
+    private String body;
+    private final BodyMasker bodyMasker = new BodyMasker("\"password\":\"([^\"]*)\"");
+    private final MaskingEngine maskingEngine = MaskingEngine.compile(List.of(
+            new BodyMasker("\"password\":\"([^\"]*)\""),
+            new BodyMasker("\"iban\":\"([^\"]*)\""),
+            new BodyMasker("\"pin\":\"(\\\\d+)\"")));
+    private final JsonBodyMasker jsonBodyMasker = new JsonBodyMasker(Set.of("password", "iban"));
+    private final ParameterMasker parameterMasker = new ParameterMasker("token");
+    private final UrlMasker urlMasker = new UrlMasker(Set.of("token", "password"));
+
+    @Setup
+    public void setUp() {
+        body = "large".equals(size) ? Fixtures.LARGE_JSON : Fixtures.SMALL_JSON;
+    }
+
+    @Benchmark
+    public String bodyMasker() {
+        return bodyMasker.mask(body);
+    }
+
+    @Benchmark
+    public String maskingEngine() {
+        return maskingEngine.mask(body);
+    }
+
+    @Benchmark
+    public String jsonBodyMasker() {
+        return jsonBodyMasker.mask(body);
+    }
+
+    @Benchmark
+    public String parameterMasker() {
+        return parameterMasker.mask(URL);
+    }
+
+    @Benchmark
+    public String urlMasker() {
+        return urlMasker.mask(URL);
+    }
+}
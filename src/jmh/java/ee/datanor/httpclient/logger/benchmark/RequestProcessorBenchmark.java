@@ -0,0 +1,90 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.benchmark;
+
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.masker.JsonBodyMasker;
+import ee.datanor.httpclient.logger.processor.RequestLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestBodyLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestHashLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestHeadersLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestLineLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestRouteLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestTimeLogProcessor;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Set;
+
+/**
+ * One request processor over a fresh exchange, including the rendering of the values it wrote.
+ */
+@State(Scope.Benchmark)
+public class RequestProcessorBenchmark {
+
+    @Param({"time", "hash", "line", "route", "headers", "body"})
+    public String processor;
+
+    @Param({"small", "large"})
+    public String size;
+
+    @Param({"plain", "gzip"})
+    public String encoding;
+
+    private RequestLogProcessor requestLogProcessor;
+    private byte[] body;
+    private String contentEncoding;
+
+    @Setup
+    public void setUp() {
+        requestLogProcessor = create(processor);
+        body = Fixtures.body(size, encoding);
+        contentEncoding = Fixtures.contentEncoding(encoding);
+    }
+
+    @Benchmark
+    public void process(Blackhole blackhole) {
+        HttpContext context = Fixtures.context();
+        LogEvent event = LogEvent.begin(context);
+        requestLogProcessor.process(Fixtures.request(body, contentEncoding), context);
+        event.forEachText(false, (key, value) -> blackhole.consume(value));
+    }
+
+    private static RequestLogProcessor create(String processor) {
+        switch (processor) {
+            case "time":
+                return new RequestTimeLogProcessor();
+            case "hash":
+                return new RequestHashLogProcessor();
+            case "line":
+                return new RequestLineLogProcessor();
+            case "route":
+                return new RequestRouteLogProcessor();
+            case "headers":
+                return new RequestHeadersLogProcessor();
+            case "body":
+                return new RequestBodyLogProcessor(2048, Set.of(new JsonBodyMasker(Set.of("password", "iban"))));
+            default:
+                throw new IllegalArgumentException("Unknown request processor " + processor);
+        }
+    }
+}
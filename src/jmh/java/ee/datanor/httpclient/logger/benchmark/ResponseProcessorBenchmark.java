@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.benchmark;
+
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.masker.JsonBodyMasker;
+import ee.datanor.httpclient.logger.processor.ResponseLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseBodyLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseDurationLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseHeadersLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseStatusLogProcessor;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * One response processor over a fresh exchange. The application reads the body before the values are rendered, as a
+ * streamed body is logged only when it is consumed.
+ */
+@State(Scope.Benchmark)
+public class ResponseProcessorBenchmark {
+
+    @Param({"status", "headers", "duration", "body", "streamingBody"})
+    public String processor;
+
+    @Param({"small", "large"})
+    public String size;
+
+    @Param({"plain", "gzip"})
+    public String encoding;
+
+    private ResponseLogProcessor responseLogProcessor;
+    private byte[] body;
+    private String contentEncoding;
+
+    @Setup
+    public void setUp() {
+        responseLogProcessor = create(processor);
+        body = Fixtures.body(size, encoding);
+        contentEncoding = Fixtures.contentEncoding(encoding);
+    }
+
+    @Benchmark
+    public void process(Blackhole blackhole) throws IOException {
+        HttpContext context = Fixtures.context();
+        LogEvent event = LogEvent.begin(context);
+        ClassicHttpResponse response = Fixtures.response(body, contentEncoding);
+        responseLogProcessor.process(response, context);
+        EntityUtils.consume(response.getEntity());
+        event.forEachText(true, (key, value) -> blackhole.consume(value));
+    }
+
+    private static ResponseLogProcessor create(String processor) {
+        Set<String> mediaSubtypes = Set.of("json", "xml");
+        switch (processor) {
+            case "status":
+                return new ResponseStatusLogProcessor();
+            case "headers":
+                return new ResponseHeadersLogProcessor();
+            case "duration":
+                return new ResponseDurationLogProcessor();
+            case "body":
+                return new ResponseBodyLogProcessor(2048, mediaSubtypes, Set.of(new JsonBodyMasker(Set.of("password", "iban"))));
+            case "streamingBody":
+                return new ResponseBodyLogProcessor(2048, mediaSubtypes, Set.of(new JsonBodyMasker(Set.of("password", "iban"))),
+                        ResponseBodyLogProcessor.CaptureMode.STREAMING);
+            default:
+                throw new IllegalArgumentException("Unknown response processor " + processor);
+        }
+    }
+}
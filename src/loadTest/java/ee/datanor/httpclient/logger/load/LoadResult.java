@@ -0,0 +1,65 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.load;
+
+import ee.datanor.httpclient.logger.metrics.HistogramSnapshot;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of one scenario, written as one JSON line so that runs of different versions can be compared.
+ */
+final class LoadResult {
+    private final String version;
+    private final Scenario scenario;
+    private final int clients;
+    private final long elapsedNanos;
+    private final HistogramSnapshot latency;
+    private final long errors;
+    private final long allocatedBytes;
+
+    LoadResult(String version, Scenario scenario, int clients, long elapsedNanos, HistogramSnapshot latency, long errors, long allocatedBytes) {
+        this.version = version;
+        this.scenario = scenario;
+        this.clients = clients;
+        this.elapsedNanos = elapsedNanos;
+        this.latency = latency;
+        this.errors = errors;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    double getThroughput() {
+        return latency.getCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    long getBytesPerRequest() {
+        return latency.getCount() == 0 ? 0 : allocatedBytes / latency.getCount();
+    }
+
+    String toJson() {
+        return String.format(Locale.ROOT, "{\"version\":\"%s\",\"scenario\":\"%s\",\"clients\":%d,\"requests\":%d,\"errors\":%d,\"elapsedMillis\":%d,"
+                        + "\"throughput\":%.1f,\"p50Micros\":%d,\"p99Micros\":%d,\"p999Micros\":%d,\"maxMicros\":%d,\"bytesPerRequest\":%d}",
+                version, scenario.name().toLowerCase(Locale.ROOT), clients, latency.getCount(), errors, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                getThroughput(), micros(latency.getValueAtPercentile(50)), micros(latency.getValueAtPercentile(99)),
+                micros(latency.getValueAtPercentile(99.9)), micros(latency.getMax()), getBytesPerRequest());
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
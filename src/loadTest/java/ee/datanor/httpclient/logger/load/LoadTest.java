@@ -0,0 +1,260 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.load;
+
+import ee.datanor.httpclient.logger.metrics.LatencyHistogram;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.impl.bootstrap.HttpServer;
+import org.apache.hc.core5.http.impl.bootstrap.ServerBootstrap;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.io.CloseMode;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives an in-JVM HTTP server with concurrent classic or async clients, once per {@link Scenario}, and writes one JSON line of
+ * throughput, latency percentiles and allocation per request for each. Allocation is summed over all threads alive at
+ * the end of the measurement, so it includes the server and the logger's background workers.
+ * <p>
+ * Arguments are {@code key=value} pairs: {@code clients}, {@code seconds}, {@code warmup} (seconds),
+ * {@code bodySize} (bytes), {@code scenarios} (comma separated, or {@code all}) and {@code output} (file the lines are
+ * appended to).
+ */
+public final class LoadTest {
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int clients;
+    private final long warmupNanos;
+    private final long measureNanos;
+    private final byte[] requestBody;
+    private final byte[] responseBody;
+    private String baseUri;
+
+    private LoadTest(int clients, long warmupNanos, long measureNanos, int bodySize) {
+        this.clients = clients;
+        this.warmupNanos = warmupNanos;
+        this.measureNanos = measureNanos;
+        this.requestBody = json(bodySize);
+        this.responseBody = json(bodySize);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            arguments.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        LoadTest loadTest = new LoadTest(Integer.parseInt(arguments.getOrDefault("clients", "16")),
+                TimeUnit.SECONDS.toNanos(Long.parseLong(arguments.getOrDefault("warmup", "5"))),
+                TimeUnit.SECONDS.toNanos(Long.parseLong(arguments.getOrDefault("seconds", "15"))),
+                Integer.parseInt(arguments.getOrDefault("bodySize", "2048")));
+        String version = System.getProperty("loadTest.version", "dev");
+        String output = arguments.get("output");
+        for (Scenario scenario : scenarios(arguments.getOrDefault("scenarios", "all"))) {
+            String line = loadTest.run(scenario, version).toJson();
+            System.out.println(line);
+            if (output != null) {
+                Files.writeString(Path.of(output), line + System.lineSeparator(), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            }
+        }
+    }
+
+    private static List<Scenario> scenarios(String names) {
+        if ("all".equals(names)) {
+            return Arrays.asList(Scenario.values());
+        }
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String name : names.split(",")) {
+            scenarios.add(Scenario.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+        }
+        return scenarios;
+    }
+
+    private LoadResult run(Scenario scenario, String version) throws Exception {
+        HttpServer server = startServer();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            return scenario.isAsync() ? runAsync(scenario, version, executor) : runClassic(scenario, version, executor);
+        } finally {
+            executor.shutdownNow();
+            server.close(CloseMode.IMMEDIATE);
+        }
+    }
+
+    private LoadResult runClassic(Scenario scenario, String version, ExecutorService executor) throws Exception {
+        HttpClientBuilder builder = HttpClients.custom().setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(clients)
+                .setMaxConnPerRoute(clients)
+                .build());
+        AutoCloseable resources = scenario.configure(builder);
+        try (CloseableHttpClient client = builder.build()) {
+            return measure(scenario, version, executor, uri -> {
+                HttpPost post = new HttpPost(uri);
+                post.setEntity(new ByteArrayEntity(requestBody, ContentType.APPLICATION_JSON));
+                return client.execute(post, response -> {
+                    EntityUtils.consume(response.getEntity());
+                    return response.getCode();
+                });
+            });
+        } finally {
+            resources.close();
+        }
+    }
+
+    private LoadResult runAsync(Scenario scenario, String version, ExecutorService executor) throws Exception {
+        HttpAsyncClientBuilder builder = HttpAsyncClients.custom().setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(clients)
+                .setMaxConnPerRoute(clients)
+                .build());
+        AutoCloseable resources = scenario.configure(builder);
+        try (CloseableHttpAsyncClient client = builder.build()) {
+            client.start();
+            return measure(scenario, version, executor, uri -> {
+                SimpleHttpRequest post = SimpleRequestBuilder.post(uri).setBody(requestBody, ContentType.APPLICATION_JSON).build();
+                return client.execute(post, null).get().getCode();
+            });
+        } finally {
+            resources.close();
+        }
+    }
+
+    private LoadResult measure(Scenario scenario, String version, ExecutorService executor, Client client) throws Exception {
+        drive(client, executor, warmupNanos, new LatencyHistogram(), new LongAdder());
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        Map<Long, Long> allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        drive(client, executor, measureNanos, latency, errors);
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedSince(allocatedBefore);
+        return new LoadResult(version, scenario, clients, elapsed, latency.snapshot(), errors.sum(), allocated);
+    }
+
+    private HttpServer startServer() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        HttpServer server = ServerBootstrap.bootstrap()
+                .setListenerPort(port)
+                .register("*", (request, response, context) -> {
+                    EntityUtils.consume(request.getEntity());
+                    response.setCode(HttpStatus.SC_OK);
+                    response.setEntity(new ByteArrayEntity(responseBody, ContentType.APPLICATION_JSON));
+                })
+                .create();
+        server.start();
+        baseUri = "http://localhost:" + port;
+        return server;
+    }
+
+    private void drive(Client client, ExecutorService executor, long nanos, LatencyHistogram latency, LongAdder errors) throws Exception {
+        long deadline = System.nanoTime() + nanos;
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            int clientId = i;
+            futures.add(executor.submit(() -> {
+                for (long n = 0; System.nanoTime() < deadline; n++) {
+                    exchange(client, clientId * 1_000_000_000L + n, latency, errors);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private void exchange(Client client, long id, LatencyHistogram latency, LongAdder errors) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            if (client.post(baseUri + "/customers/" + id + "/orders?token=secret") != HttpStatus.SC_OK) {
+                errors.increment();
+            }
+        } catch (IOException | ExecutionException e) {
+            errors.increment();
+        }
+        latency.record(System.nanoTime() - start);
+    }
+
+    private static Map<Long, Long> allocatedBytes() {
+        long[] ids = THREADS.getAllThreadIds();
+        long[] bytes = THREADS.getThreadAllocatedBytes(ids);
+        Map<Long, Long> allocated = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                allocated.put(ids[i], bytes[i]);
+            }
+        }
+        return allocated;
+    }
+
+    private static long allocatedSince(Map<Long, Long> before) {
+        long allocated = 0;
+        for (Map.Entry<Long, Long> thread : allocatedBytes().entrySet()) {
+            allocated += thread.getValue() - before.getOrDefault(thread.getKey(), 0L);
+        }
+        return allocated;
+    }
+
+    /**
+     * Posts the request body with the classic or the async client and returns the response status.
+     */
+    private interface Client {
+        int post(String uri) throws IOException, ExecutionException, InterruptedException;
+    }
+
+    private static byte[] json(int size) {
+        StringBuilder json = new StringBuilder(size + 64).append('[');
+        for (int i = 0; json.length() < size; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"Jane Doe\",\"password\":\"secret\"}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
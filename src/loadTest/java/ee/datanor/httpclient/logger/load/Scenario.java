@@ -0,0 +1,277 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.load;
+
+import ee.datanor.httpclient.logger.HttpClientLogger;
+import ee.datanor.httpclient.logger.async.AsyncHttpClientLoggerExecHandler;
+import ee.datanor.httpclient.logger.capture.ContentDecoderRegistry;
+import ee.datanor.httpclient.logger.classic.HttpClientLoggerExecHandler;
+import ee.datanor.httpclient.logger.dispatch.AsyncLogDispatcher;
+import ee.datanor.httpclient.logger.dispatch.OverflowPolicy;
+import ee.datanor.httpclient.logger.event.RecordLayout;
+import ee.datanor.httpclient.logger.masker.JsonBodyMasker;
+import ee.datanor.httpclient.logger.metrics.ProcessorMetrics;
+import ee.datanor.httpclient.logger.metrics.RouteMetrics;
+import ee.datanor.httpclient.logger.processor.RequestLogProcessor;
+import ee.datanor.httpclient.logger.processor.ResponseLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestBodyLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestHashLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestHeadersLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestLineLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestRouteLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestTimeLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseBodyLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseDurationLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseHeadersLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseStatusLogProcessor;
+import ee.datanor.httpclient.logger.route.RouteNormalizer;
+import ee.datanor.httpclient.logger.sampling.LogSampler;
+import ee.datanor.httpclient.logger.sampling.TailPolicy;
+import ee.datanor.httpclient.logger.sink.MappedSegmentSink;
+import ee.datanor.httpclient.logger.sink.NdjsonSink;
+import ee.datanor.httpclient.logger.store.BodyStore;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Logger setups compared by the load test, from no logger to the interceptors of the README, the exec handler modes,
+ * the async client and the record sinks. A setup returns what has to be closed when its client is closed.
+ */
+enum Scenario {
+    NONE {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) {
+            return NOTHING;
+        }
+    },
+    INTERCEPTORS {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) {
+            HttpClientLogger logger = new HttpClientLogger(requestLogProcessors(), responseLogProcessors(ResponseBodyLogProcessor.CaptureMode.BUFFERED));
+            builder.addRequestInterceptorLast((HttpRequest request, EntityDetails entityDetails, HttpContext context) -> {
+                logger.cleanup();
+                logger.logRequest(request, context);
+            }).addResponseInterceptorLast((HttpResponse response, EntityDetails entityDetails, HttpContext context) -> {
+                logger.logResponse(response, context);
+                logger.cleanup();
+            });
+            return NOTHING;
+        }
+    },
+    EXEC_HANDLER {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) {
+            addExecHandler(builder, new HttpClientLoggerExecHandler(new HttpClientLogger(requestLogProcessors(),
+                    responseLogProcessors(ResponseBodyLogProcessor.CaptureMode.BUFFERED))));
+            return NOTHING;
+        }
+    },
+    STREAMING {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) {
+            addExecHandler(builder, new HttpClientLoggerExecHandler(new HttpClientLogger(requestLogProcessors(),
+                    responseLogProcessors(ResponseBodyLogProcessor.CaptureMode.STREAMING), false)));
+            return NOTHING;
+        }
+    },
+    ASYNC_DISPATCHER {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) {
+            AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(AsyncLogDispatcher.DEFAULT_CAPACITY, 1, OverflowPolicy.DROP);
+            addExecHandler(builder, new HttpClientLoggerExecHandler(streamingLogger().dispatcher(dispatcher).build()));
+            return dispatcher;
+        }
+    },
+    SAMPLED {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) {
+            addExecHandler(builder, new HttpClientLoggerExecHandler(streamingLogger().sampler(LogSampler.rate(0.1)).build()));
+            return NOTHING;
+        }
+    },
+    TAIL {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) {
+            addExecHandler(builder, new HttpClientLoggerExecHandler(streamingLogger().tailPolicy(TailPolicy.errorsOrSlowerThan(Duration.ofMillis(100))).build()));
+            return NOTHING;
+        }
+    },
+    METRICS {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) {
+            HttpClientLogger logger = streamingLogger().processorMetrics(new ProcessorMetrics()).build();
+            addExecHandler(builder, new HttpClientLoggerExecHandler(logger, new RouteMetrics(ROUTE_NORMALIZER::normalize)));
+            return NOTHING;
+        }
+    },
+    ASYNC_CLIENT {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) {
+            throw new UnsupportedOperationException(name() + " runs with the async client");
+        }
+
+        @Override
+        boolean isAsync() {
+            return true;
+        }
+
+        @Override
+        AutoCloseable configure(HttpAsyncClientBuilder builder) {
+            builder.addExecInterceptorAfter(ChainElement.PROTOCOL.name(), "httpclient-logger",
+                    new AsyncHttpClientLoggerExecHandler(streamingLogger().build()));
+            return NOTHING;
+        }
+    },
+    RECORD_LAYOUT {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) {
+            addExecHandler(builder, new HttpClientLoggerExecHandler(streamingLogger().recordLayout(LAYOUT).build()));
+            return NOTHING;
+        }
+    },
+    NDJSON_SINK {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) throws IOException {
+            Path directory = Files.createTempDirectory("httpclient-logger-load");
+            NdjsonSink sink = new NdjsonSink(FileChannel.open(directory.resolve("exchanges.ndjson"), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE), NdjsonSink.DEFAULT_BATCH_SIZE, NdjsonSink.DEFAULT_FLUSH_INTERVAL, false);
+            addExecHandler(builder, new HttpClientLoggerExecHandler(streamingLogger().recordSink(sink).build()));
+            return closeAndDelete(sink, directory);
+        }
+    },
+    SEGMENT_SINK {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) throws IOException {
+            Path directory = Files.createTempDirectory("httpclient-logger-load");
+            MappedSegmentSink sink = new MappedSegmentSink(directory);
+            addExecHandler(builder, new HttpClientLoggerExecHandler(streamingLogger().recordSink(sink).build()));
+            return closeAndDelete(sink, directory);
+        }
+    },
+    BODY_STORE {
+        @Override
+        AutoCloseable configure(HttpClientBuilder builder) throws IOException {
+            Path directory = Files.createTempDirectory("httpclient-logger-load");
+            BodyStore bodyStore = new BodyStore(directory.resolve("bodies.log"));
+            addExecHandler(builder, new HttpClientLoggerExecHandler(HttpClientLogger.builder()
+                    .requestLogProcessors(requestLogProcessors(bodyStore))
+                    .responseLogProcessors(responseLogProcessors(ResponseBodyLogProcessor.CaptureMode.STREAMING, bodyStore))
+                    .mdcBridge(false)
+                    .build()));
+            return closeAndDelete(bodyStore, directory);
+        }
+    };
+
+    private static final AutoCloseable NOTHING = () -> { };
+    private static final RouteNormalizer ROUTE_NORMALIZER = new RouteNormalizer();
+    private static final Set<String> MEDIA_SUBTYPES = Set.of("json", "xml");
+    private static final RecordLayout LAYOUT = RecordLayout.of(
+            "REQ\t%X{HC_REQUEST_TIME}\t%X{HC_REQUEST_HASH}\t%X{HC_REQUEST_LINE}\t%X{HC_REQUEST_HEADERS}\t%X{HC_REQUEST_BODY}",
+            "RES\t%X{HC_REQUEST_HASH}\t%X{HC_REQUEST_LINE}\t%X{HC_RESPONSE_STATUS}\t%X{HC_RESPONSE_HEADERS}\t%X{HC_RESPONSE_DURATION}\t%X{HC_RESPONSE_BODY}");
+
+    /**
+     * Adds the logger to the builder of a client.
+     */
+    abstract AutoCloseable configure(HttpClientBuilder builder) throws IOException;
+
+    /**
+     * Whether the scenario runs with the async client, configured by {@link #configure(HttpAsyncClientBuilder)}.
+     */
+    boolean isAsync() {
+        return false;
+    }
+
+    AutoCloseable configure(HttpAsyncClientBuilder builder) throws IOException {
+        throw new UnsupportedOperationException(name() + " runs with the classic client");
+    }
+
+    /**
+     * Closes the sink or store and deletes the directory of its files.
+     */
+    private static AutoCloseable closeAndDelete(AutoCloseable resource, Path directory) {
+        return () -> {
+            try {
+                resource.close();
+            } finally {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+                }
+            }
+        };
+    }
+
+    private static void addExecHandler(HttpClientBuilder builder, HttpClientLoggerExecHandler execHandler) {
+        builder.addExecInterceptorAfter(ChainElement.PROTOCOL.name(), "httpclient-logger", execHandler);
+    }
+
+    /**
+     * Logger with streaming body capture and without the MDC bridge, as used by most scenarios.
+     */
+    private static HttpClientLogger.Builder streamingLogger() {
+        return HttpClientLogger.builder()
+                .requestLogProcessors(requestLogProcessors())
+                .responseLogProcessors(responseLogProcessors(ResponseBodyLogProcessor.CaptureMode.STREAMING))
+                .mdcBridge(false);
+    }
+
+    private static List<RequestLogProcessor> requestLogProcessors() {
+        return requestLogProcessors(null);
+    }
+
+    private static List<RequestLogProcessor> requestLogProcessors(BodyStore bodyStore) {
+        return List.of(
+                new RequestTimeLogProcessor(),
+                new RequestHashLogProcessor(),
+                new RequestLineLogProcessor(),
+                new RequestRouteLogProcessor(ROUTE_NORMALIZER),
+                new RequestHeadersLogProcessor(),
+                new RequestBodyLogProcessor(2048, Set.of(new JsonBodyMasker(Set.of("password", "iban"))), MEDIA_SUBTYPES, ContentDecoderRegistry.defaults(),
+                        bodyStore)
+        );
+    }
+
+    private static List<ResponseLogProcessor> responseLogProcessors(ResponseBodyLogProcessor.CaptureMode captureMode) {
+        return responseLogProcessors(captureMode, null);
+    }
+
+    private static List<ResponseLogProcessor> responseLogProcessors(ResponseBodyLogProcessor.CaptureMode captureMode, BodyStore bodyStore) {
+        return List.of(
+                new ResponseStatusLogProcessor(),
+                new ResponseHeadersLogProcessor(),
+                new ResponseDurationLogProcessor(),
+                new ResponseBodyLogProcessor(2048, MEDIA_SUBTYPES, Set.of(new JsonBodyMasker(Set.of("password", "iban"))), captureMode,
+                        ContentDecoderRegistry.defaults(), bodyStore)
+        );
+    }
+}
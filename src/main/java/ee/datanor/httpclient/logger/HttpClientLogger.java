@@ -16,42 +16,463 @@
 
 package ee.datanor.httpclient.logger;
 
+import ee.datanor.httpclient.logger.capture.DeferredLog;
+import ee.datanor.httpclient.logger.capture.EntityCapture;
+import ee.datanor.httpclient.logger.dispatch.AsyncLogDispatcher;
+import ee.datanor.httpclient.logger.dispatch.LogRecordEmitter;
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
+import ee.datanor.httpclient.logger.event.RecordLayout;
+import ee.datanor.httpclient.logger.metrics.ProcessorMetrics;
+import ee.datanor.httpclient.logger.processor.EntityCaptureLogProcessor;
+import ee.datanor.httpclient.logger.processor.LogProcessor;
+import ee.datanor.httpclient.logger.processor.OutboundRequestProcessor;
 import ee.datanor.httpclient.logger.processor.RequestLogProcessor;
 import ee.datanor.httpclient.logger.processor.ResponseLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestLineLogProcessor;
+import ee.datanor.httpclient.logger.sampling.LogSampler;
+import ee.datanor.httpclient.logger.sampling.TailPolicy;
+import ee.datanor.httpclient.logger.sink.RecordSink;
+import ee.datanor.httpclient.logger.timing.ExchangeTiming;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpMessage;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.slf4j.spi.LoggingEventBuilder;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Slf4j
 public class HttpClientLogger {
+    public static final String UNSAMPLED_ATTRIBUTE = "httpclient-logger.unsampled";
+    public static final String TAIL_ATTRIBUTE = "httpclient-logger.tail-exchange";
+    private static final String REQUEST_MESSAGE = "Incoming Request {}";
+    private static final String RESPONSE_MESSAGE = "Outgoing response {}";
 
     private final Logger requestLogger = LoggerFactory.getLogger("httpclient-request-log");
     private final Logger responseLogger = LoggerFactory.getLogger("httpclient-response-log");
+    private final Logger summaryLogger = LoggerFactory.getLogger("httpclient-summary-log");
     private final List<RequestLogProcessor> requestLogProcessors;
+    private final List<OutboundRequestProcessor> outboundRequestProcessors;
     private final List<ResponseLogProcessor> responseLogProcessors;
+    private final boolean mdcBridge;
+    private final AsyncLogDispatcher dispatcher;
+    private final LogSampler sampler;
+    private final TailPolicy tailPolicy;
+    private final ProcessorMetrics processorMetrics;
+    private final RecordLayout recordLayout;
+    private final RecordSink recordSink;
+    private final LogRecordEmitter heldRecordEmitter = this::emitHeld;
 
     public HttpClientLogger(List<RequestLogProcessor> requestLogProcessors, List<ResponseLogProcessor> responseLogProcessors) {
-        this.requestLogProcessors = requestLogProcessors;
-        this.responseLogProcessors = responseLogProcessors;
+        this(requestLogProcessors, responseLogProcessors, true);
+    }
+
+    /**
+     * Processors write into the exchange's {@link LogEvent} kept on the {@code HttpContext}. With the MDC bridge the
+     * fields are put into MDC only for the duration of the logging call, without it they are passed to the logger as
+     * SLF4J key-value pairs. Either way nothing is rendered for a disabled logger.
+     */
+    public HttpClientLogger(List<RequestLogProcessor> requestLogProcessors, List<ResponseLogProcessor> responseLogProcessors, boolean mdcBridge) {
+        this(builder().requestLogProcessors(requestLogProcessors).responseLogProcessors(responseLogProcessors).mdcBridge(mdcBridge));
+    }
+
+    private HttpClientLogger(Builder builder) {
+        this.requestLogProcessors = builder.requestLogProcessors;
+        this.outboundRequestProcessors = requestLogProcessors.stream()
+                .filter(OutboundRequestProcessor.class::isInstance)
+                .map(OutboundRequestProcessor.class::cast)
+                .toList();
+        this.responseLogProcessors = builder.responseLogProcessors;
+        this.mdcBridge = builder.mdcBridge;
+        this.dispatcher = builder.dispatcher;
+        this.sampler = builder.sampler;
+        this.tailPolicy = builder.tailPolicy;
+        this.processorMetrics = builder.processorMetrics;
+        this.recordLayout = builder.recordLayout;
+        this.recordSink = builder.recordSink;
+    }
+
+    public static Builder builder() {
+        return new Builder();
     }
 
     public void logRequest(HttpRequest httpRequest, HttpContext httpContext) {
-        requestLogProcessors.forEach(p -> p.process(httpRequest, httpContext));
-        requestLogger.info("Incoming Request {}", MDC.get("HC_REQUEST_LINE"));
+        logStreamedRequest(httpRequest, null, httpContext);
     }
 
     public void logResponse(HttpResponse httpResponse, HttpContext httpContext) {
-        responseLogProcessors.forEach(p -> p.process(httpResponse, httpContext));
-        responseLogger.info("Outgoing response {}", MDC.get("HC_REQUEST_LINE"));
+        logStreamedResponse(httpResponse, null, httpContext);
+    }
+
+    /**
+     * Logs a request whose body is not an {@code HttpEntity} but streamed by the caller, e.g. by the async client.
+     * The returned capture, if any, has to be fed with the body and completed, the record is held back until then.
+     */
+    public EntityCapture logStreamedRequest(HttpRequest httpRequest, EntityDetails entityDetails, HttpContext httpContext) {
+        outboundRequestProcessors.forEach(p -> p.prepare(httpRequest, httpContext));
+        if (tailPolicy != null && httpContext != null && httpContext.getAttribute(TAIL_ATTRIBUTE) != null) {
+            // the previous exchange on the context got no response, e.g. failed with interceptors instead of an exec handler
+            flushRequest(httpContext);
+        }
+        if (!sample(httpRequest, httpContext)) {
+            return null;
+        }
+        LogEvent event = null;
+        if (httpContext != null) {
+            httpContext.removeAttribute(DeferredLog.REQUEST_ATTRIBUTE);
+            event = LogEvent.begin(httpContext);
+        }
+        process(requestLogProcessors, p -> p.process(httpRequest, httpContext), httpContext);
+        EntityCapture entityCapture = captureEntity(requestLogProcessors, httpRequest, entityDetails, httpContext);
+        if (tailPolicy != null && event != null) {
+            event.hold();
+            httpContext.setAttribute(TAIL_ATTRIBUTE, new TailExchange(event, ExchangeTiming.find(httpContext)));
+            return entityCapture;
+        }
+        log(requestLogger, REQUEST_MESSAGE, DeferredLog.find(httpContext, DeferredLog.REQUEST_ATTRIBUTE), event, false);
+        return entityCapture;
+    }
+
+    /**
+     * Response counterpart of {@link #logStreamedRequest(HttpRequest, EntityDetails, HttpContext)}.
+     */
+    public EntityCapture logStreamedResponse(HttpResponse httpResponse, EntityDetails entityDetails, HttpContext httpContext) {
+        if (httpContext != null && httpContext.getAttribute(UNSAMPLED_ATTRIBUTE) != null) {
+            logSummary(httpResponse, httpContext);
+            return null;
+        }
+        completeRequestBody(httpContext);
+        LogEvent event = null;
+        if (httpContext != null) {
+            httpContext.removeAttribute(DeferredLog.RESPONSE_ATTRIBUTE);
+            event = LogEvent.find(httpContext);
+            if (event == null) {
+                event = LogEvent.begin(httpContext);
+            }
+            event.beginResponse();
+        }
+        process(responseLogProcessors, p -> p.process(httpResponse, httpContext), httpContext);
+        EntityCapture entityCapture = captureEntity(responseLogProcessors, httpResponse, entityDetails, httpContext);
+        DeferredLog deferredLog = DeferredLog.find(httpContext, DeferredLog.RESPONSE_ATTRIBUTE);
+        TailExchange tail = TailExchange.remove(httpContext);
+        if (tail != null) {
+            int status = httpResponse.getCode();
+            log(deferredLog, event, () -> publishTail(tail, status, null, true));
+        } else {
+            log(responseLogger, RESPONSE_MESSAGE, deferredLog, event, true);
+        }
+        return entityCapture;
+    }
+
+    /**
+     * Writes the request record if it is still waiting for its body. Request body that was not written by the time
+     * the response arrives or the exchange fails will not be written anymore.
+     */
+    public void flushRequest(HttpContext httpContext) {
+        flushRequest(httpContext, null);
+    }
+
+    /**
+     * Writes the request record of an exchange that failed before the response arrived.
+     */
+    public void flushRequest(HttpContext httpContext, Throwable failure) {
+        completeRequestBody(httpContext);
+        TailExchange tail = TailExchange.remove(httpContext);
+        if (tail != null) {
+            publishTail(tail, 0, failure, false);
+        }
+    }
+
+    private void completeRequestBody(HttpContext httpContext) {
+        DeferredLog deferredRequestLog = DeferredLog.find(httpContext, DeferredLog.REQUEST_ATTRIBUTE);
+        if (deferredRequestLog != null) {
+            deferredRequestLog.flush();
+        }
+    }
+
+    private void publishTail(TailExchange tail, int status, Throwable failure, boolean withResponse) {
+        LogEvent event = tail.event;
+        try {
+            if (!tailPolicy.keep(status, tail.getDuration(), failure)) {
+                // the captured bytes are dropped without being decoded
+                event.set(LogField.REQUEST_BODY, LogProcessor.EMPTY_REPLACEMENT);
+                event.set(LogField.RESPONSE_BODY, LogProcessor.EMPTY_REPLACEMENT);
+                event.set(LogField.RESPONSE_BODY_LENGTH, LogProcessor.EMPTY_REPLACEMENT);
+            }
+            publish(requestLogger, REQUEST_MESSAGE, event, false);
+            if (withResponse) {
+                publish(responseLogger, RESPONSE_MESSAGE, event, true);
+            }
+        } finally {
+            event.release();
+        }
+    }
+
+    private boolean sample(HttpRequest httpRequest, HttpContext httpContext) {
+        if (sampler == null) {
+            return true;
+        }
+        if (httpContext != null) {
+            httpContext.removeAttribute(UNSAMPLED_ATTRIBUTE);
+        }
+        if (sampler.sample(httpRequest, httpContext)) {
+            return true;
+        }
+        if (httpContext != null) {
+            // the request part of the summary, kept until the response arrives
+            httpContext.setAttribute(UNSAMPLED_ATTRIBUTE, sampler.isSummary() ? sampler.summarize(httpRequest, httpContext) : "");
+        }
+        return false;
+    }
+
+    private void logSummary(HttpResponse httpResponse, HttpContext httpContext) {
+        Object requestLine = httpContext.removeAttribute(UNSAMPLED_ATTRIBUTE);
+        if (sampler.isSummary() && summaryLogger.isInfoEnabled()) {
+            summaryLogger.info("Unsampled exchange {} {}", requestLine, httpResponse.getCode());
+        }
+    }
+
+    private <P extends LogProcessor> void process(List<P> processors, Consumer<P> processing, HttpContext httpContext) {
+        if (processorMetrics == null) {
+            processors.forEach(processing);
+            return;
+        }
+        if (httpContext != null) {
+            httpContext.setAttribute(ProcessorMetrics.ATTRIBUTE, processorMetrics);
+        }
+        for (P processor : processors) {
+            long start = System.nanoTime();
+            processing.accept(processor);
+            processorMetrics.recordProcessing(processor.getClass(), System.nanoTime() - start);
+        }
+    }
+
+    private EntityCapture captureEntity(List<? extends LogProcessor> processors, HttpMessage message, EntityDetails entityDetails,
+                                        HttpContext httpContext) {
+        if (entityDetails == null) {
+            return null;
+        }
+        for (LogProcessor processor : processors) {
+            if (processor instanceof EntityCaptureLogProcessor) {
+                EntityCapture entityCapture = ((EntityCaptureLogProcessor) processor).captureEntity(message, entityDetails, httpContext);
+                if (entityCapture != null) {
+                    return entityCapture;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void log(Logger logger, String message, DeferredLog deferredLog, LogEvent event, boolean response) {
+        if (event == null) {
+            // processors without an HttpContext have written into MDC
+            logger.info(message, MDC.get(RequestLineLogProcessor.MDC_KEY));
+            return;
+        }
+        log(deferredLog, event, () -> publish(logger, message, event, response));
+    }
+
+    private void log(DeferredLog deferredLog, LogEvent event, Runnable publisher) {
+        if (deferredLog == null) {
+            publisher.run();
+            return;
+        }
+        event.hold();
+        deferredLog.whenComplete(() -> {
+            try {
+                publisher.run();
+            } finally {
+                event.release();
+            }
+        });
+    }
+
+    private void publish(Logger logger, String message, LogEvent event, boolean response) {
+        if (recordSink == null && !logger.isInfoEnabled()) {
+            return;
+        }
+        if (dispatcher == null) {
+            emit(logger, message, event, response);
+            return;
+        }
+        // the event must not be reused by the next exchange before the worker has written the record
+        event.hold();
+        if (!dispatcher.dispatch(heldRecordEmitter, logger, message, event, response)) {
+            event.release();
+        }
+    }
+
+    private void emitHeld(Logger logger, String message, LogEvent event, boolean response) {
+        try {
+            emit(logger, message, event, response);
+        } finally {
+            event.release();
+        }
+    }
+
+    private void emit(Logger logger, String message, LogEvent event, boolean response) {
+        try {
+            if (recordSink != null) {
+                recordSink.write(event, response);
+            } else if (recordLayout != null) {
+                logger.info("{}", recordLayout.render(event, response));
+            } else if (mdcBridge) {
+                emitWithMdc(logger, message, event, response);
+            } else {
+                LoggingEventBuilder builder = logger.atInfo();
+                event.forEachText(response, builder::addKeyValue);
+                builder.log(message, event.getText(LogField.REQUEST_LINE));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to write log record - " + e.getMessage(), e);
+        }
+    }
+
+    private void emitWithMdc(Logger logger, String message, LogEvent event, boolean response) {
+        List<String> keys = new ArrayList<>();
+        try {
+            event.forEachText(response, (key, value) -> {
+                MDC.put(key, value);
+                keys.add(key);
+            });
+            logger.info(message, event.getText(LogField.REQUEST_LINE));
+        } finally {
+            keys.forEach(MDC::remove);
+        }
+    }
+
+    /**
+     * Exchange whose request record waits for the outcome of the exchange.
+     */
+    private static final class TailExchange {
+        private final LogEvent event;
+        private final ExchangeTiming timing;
+        private final long startNanos = System.nanoTime();
+
+        private TailExchange(LogEvent event, ExchangeTiming timing) {
+            this.event = event;
+            this.timing = timing;
+        }
+
+        private static TailExchange remove(HttpContext httpContext) {
+            Object tail = httpContext == null ? null : httpContext.getAttribute(TAIL_ATTRIBUTE);
+            if (!(tail instanceof TailExchange)) {
+                return null;
+            }
+            httpContext.removeAttribute(TAIL_ATTRIBUTE);
+            return (TailExchange) tail;
+        }
+
+        private long getDuration() {
+            return timing != null ? timing.getDuration() : System.nanoTime() - startNanos;
+        }
+    }
+
+    public static final class Builder {
+        private List<RequestLogProcessor> requestLogProcessors = List.of();
+        private List<ResponseLogProcessor> responseLogProcessors = List.of();
+        private boolean mdcBridge = true;
+        private AsyncLogDispatcher dispatcher;
+        private LogSampler sampler;
+        private TailPolicy tailPolicy;
+        private ProcessorMetrics processorMetrics;
+        private RecordLayout recordLayout;
+        private RecordSink recordSink;
+
+        private Builder() { }
+
+        public Builder requestLogProcessors(List<RequestLogProcessor> requestLogProcessors) {
+            this.requestLogProcessors = requestLogProcessors;
+            return this;
+        }
+
+        public Builder responseLogProcessors(List<ResponseLogProcessor> responseLogProcessors) {
+            this.responseLogProcessors = responseLogProcessors;
+            return this;
+        }
+
+        /**
+         * See {@link HttpClientLogger#HttpClientLogger(List, List, boolean)}, enabled by default.
+         */
+        public Builder mdcBridge(boolean mdcBridge) {
+            this.mdcBridge = mdcBridge;
+            return this;
+        }
+
+        /**
+         * With a dispatcher the records are rendered and written by its workers, the request thread only queues them.
+         */
+        public Builder dispatcher(AsyncLogDispatcher dispatcher) {
+            this.dispatcher = dispatcher;
+            return this;
+        }
+
+        /**
+         * With a sampler the exchanges that are not sampled skip all processors, they are logged only as a summary line
+         * to {@code httpclient-summary-log} when the sampler asks for it.
+         */
+        public Builder sampler(LogSampler sampler) {
+            this.sampler = sampler;
+            return this;
+        }
+
+        /**
+         * With a tail policy the request record is held back until the outcome of the exchange is known, both records
+         * are then written with bodies only if the policy keeps the exchange. Bodies that are not kept are never decoded.
+         * Use it with an exec handler, which writes the request record of a failed exchange with its failure. With
+         * interceptors that record is written only by the next exchange on the same context, as one without response.
+         */
+        public Builder tailPolicy(TailPolicy tailPolicy) {
+            this.tailPolicy = tailPolicy;
+            return this;
+        }
+
+        /**
+         * With processor metrics every processor is timed and the rendering of its captured bodies is measured, see
+         * {@link ProcessorMetrics}.
+         */
+        public Builder processorMetrics(ProcessorMetrics processorMetrics) {
+            this.processorMetrics = processorMetrics;
+            return this;
+        }
+
+        /**
+         * With a record layout each record is rendered from its compiled template into one message, the fields are
+         * neither put into MDC nor passed as key-value pairs and the MDC bridge flag is ignored.
+         */
+        public Builder recordLayout(RecordLayout recordLayout) {
+            this.recordLayout = recordLayout;
+            return this;
+        }
+
+        /**
+         * With a record sink the records are written to the sink instead of SLF4J, regardless of the log level, and
+         * the MDC bridge flag and the record layout are ignored.
+         */
+        public Builder recordSink(RecordSink recordSink) {
+            this.recordSink = recordSink;
+            return this;
+        }
+
+        public HttpClientLogger build() {
+            return new HttpClientLogger(this);
+        }
     }
 
+    /**
+     * Removes the built-in fields from MDC, they are left there only by processors used without an {@code HttpContext}.
+     */
     public void cleanup() {
-        MDC.getCopyOfContextMap().entrySet().stream().filter(e -> e.getKey().startsWith("HC_")).forEach(e -> MDC.remove(e.getKey()));
+        for (LogField field : LogField.values()) {
+            MDC.remove(field.getKey());
+        }
     }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.async;
+
+import ee.datanor.httpclient.logger.HttpClientLogger;
+import ee.datanor.httpclient.logger.capture.BodyCapture;
+import ee.datanor.httpclient.logger.capture.EntityCapture;
+import ee.datanor.httpclient.logger.metrics.RouteMetrics;
+import ee.datanor.httpclient.logger.timing.ExchangeTiming;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Logs async client exchanges. Bodies are captured chunk by chunk while they are produced and consumed. The fields of
+ * each exchange are kept in its {@code LogEvent} on the client context, so the records are correlated regardless of the
+ * I/O reactor thread that completes the exchange and the caller's MDC is left untouched.
+ * Exchanges are timed for {@code ResponseDurationLogProcessor}.
+ *
+ * <pre>
+ * HttpAsyncClients.custom()
+ *     .addExecInterceptorAfter(ChainElement.PROTOCOL.name(), "httpclient-logger", new AsyncHttpClientLoggerExecHandler(httpClientLogger))
+ * </pre>
+ */
+public class AsyncHttpClientLoggerExecHandler implements AsyncExecChainHandler {
+
+    private final HttpClientLogger httpClientLogger;
+    private final RouteMetrics routeMetrics;
+
+    public AsyncHttpClientLoggerExecHandler(HttpClientLogger httpClientLogger) {
+        this(httpClientLogger, null);
+    }
+
+    /**
+     * With route metrics every exchange is recorded, whether it is logged or not, once its response body has been consumed.
+     */
+    public AsyncHttpClientLoggerExecHandler(HttpClientLogger httpClientLogger, RouteMetrics routeMetrics) {
+        this.httpClientLogger = httpClientLogger;
+        this.routeMetrics = routeMetrics;
+    }
+
+    @Override
+    public void execute(HttpRequest request, AsyncEntityProducer entityProducer, AsyncExecChain.Scope scope, AsyncExecChain chain,
+                        AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+        HttpClientContext context = scope.clientContext;
+        if (context.getHttpRoute() == null) {
+            // the async chain sets the route only once connected, processors expect it as in the classic client
+            context.setAttribute(HttpClientContext.HTTP_ROUTE, scope.route);
+        }
+        ExchangeTiming timing = ExchangeTiming.start(context);
+        EntityCapture requestCapture = httpClientLogger.logStreamedRequest(request, entityProducer, context);
+        AsyncEntityProducer producer = requestCapture == null ? entityProducer : new CapturingAsyncEntityProducer(entityProducer, requestCapture);
+        LoggingAsyncExecCallback callback = new LoggingAsyncExecCallback(asyncExecCallback, context, timing, request, scope);
+        try {
+            chain.proceed(request, producer, scope, callback);
+        } catch (HttpException | IOException | RuntimeException e) {
+            callback.record(RouteMetrics.FAILED);
+            httpClientLogger.flushRequest(context, e);
+            throw e;
+        }
+    }
+
+    private final class LoggingAsyncExecCallback implements AsyncExecCallback {
+
+        private final AsyncExecCallback callback;
+        private final HttpContext context;
+        private final ExchangeTiming timing;
+        private final HttpRequest request;
+        private final AsyncExecChain.Scope scope;
+        private final String route;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        private volatile EntityCapture responseCapture;
+        private volatile int status = RouteMetrics.FAILED;
+
+        private LoggingAsyncExecCallback(AsyncExecCallback callback, HttpContext context, ExchangeTiming timing, HttpRequest request,
+                                         AsyncExecChain.Scope scope) {
+            this.callback = callback;
+            this.context = context;
+            this.timing = timing;
+            this.request = request;
+            this.scope = scope;
+            this.route = routeMetrics == null ? null : routeMetrics.getRouteTemplate(request);
+        }
+
+        private void record(int exchangeStatus) {
+            if (routeMetrics != null && recorded.compareAndSet(false, true)) {
+                routeMetrics.record(scope.route.getTargetHost(), request.getMethod(), route, exchangeStatus, timing.getDuration());
+            }
+        }
+
+        private void bodyEnd() {
+            timing.markBodyEnd();
+            record(status);
+        }
+
+        @Override
+        public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails) throws HttpException, IOException {
+            timing.markResponse();
+            status = response.getCode();
+            EntityCapture capture = httpClientLogger.logStreamedResponse(response, entityDetails, context);
+            responseCapture = capture;
+            AsyncDataConsumer consumer = callback.handleResponse(response, entityDetails);
+            if (consumer == null) {
+                bodyEnd();
+                if (capture != null) {
+                    capture.complete();
+                }
+                return null;
+            }
+            // without a body capture the stream end is still needed for the body time
+            EntityCapture bodyCapture = capture != null ? capture : new EntityCapture(new BodyCapture(0), () -> { });
+            return new CapturingAsyncDataConsumer(consumer, bodyCapture, this::bodyEnd);
+        }
+
+        @Override
+        public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+            callback.handleInformationResponse(response);
+        }
+
+        @Override
+        public void completed() {
+            record(status);
+            callback.completed();
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            record(RouteMetrics.FAILED);
+            httpClientLogger.flushRequest(context, cause);
+            EntityCapture capture = responseCapture;
+            if (capture != null) {
+                capture.complete();
+            }
+            callback.failed(cause);
+        }
+    }
+}
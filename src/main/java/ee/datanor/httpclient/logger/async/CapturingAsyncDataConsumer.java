@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.async;
+
+import ee.datanor.httpclient.logger.capture.EntityCapture;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Response data consumer that captures each chunk before handing it to the application consumer.
+ */
+public class CapturingAsyncDataConsumer implements AsyncDataConsumer {
+
+    private final AsyncDataConsumer consumer;
+    private final EntityCapture capture;
+    private final Runnable onStreamEnd;
+
+    public CapturingAsyncDataConsumer(AsyncDataConsumer consumer, EntityCapture capture) {
+        this(consumer, capture, () -> { });
+    }
+
+    /**
+     * @param onStreamEnd run when the body has been received, before the capture is completed
+     */
+    public CapturingAsyncDataConsumer(AsyncDataConsumer consumer, EntityCapture capture, Runnable onStreamEnd) {
+        this.consumer = consumer;
+        this.capture = capture;
+        this.onStreamEnd = onStreamEnd;
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+        consumer.updateCapacity(capacityChannel);
+    }
+
+    @Override
+    public void consume(ByteBuffer src) throws IOException {
+        capture.capture(src);
+        consumer.consume(src);
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+        onStreamEnd.run();
+        capture.complete();
+        consumer.streamEnd(trailers);
+    }
+
+    @Override
+    public void releaseResources() {
+        capture.complete();
+        consumer.releaseResources();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.async;
+
+import ee.datanor.httpclient.logger.capture.EntityCapture;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Request entity producer that tees produced chunks into an {@link EntityCapture}.
+ */
+public class CapturingAsyncEntityProducer implements AsyncEntityProducer {
+
+    private final AsyncEntityProducer producer;
+    private final EntityCapture capture;
+    private volatile CapturingDataStreamChannel capturingChannel;
+
+    public CapturingAsyncEntityProducer(AsyncEntityProducer producer, EntityCapture capture) {
+        this.producer = producer;
+        this.capture = capture;
+    }
+
+    @Override
+    public void produce(DataStreamChannel channel) throws IOException {
+        CapturingDataStreamChannel current = capturingChannel;
+        if (current == null || current.getChannel() != channel) {
+            current = new CapturingDataStreamChannel(channel, capture);
+            capturingChannel = current;
+        }
+        producer.produce(current);
+    }
+
+    @Override
+    public int available() {
+        return producer.available();
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return producer.isRepeatable();
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        capture.complete();
+        producer.failed(cause);
+    }
+
+    @Override
+    public void releaseResources() {
+        capture.complete();
+        producer.releaseResources();
+    }
+
+    @Override
+    public long getContentLength() {
+        return producer.getContentLength();
+    }
+
+    @Override
+    public String getContentType() {
+        return producer.getContentType();
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return producer.getContentEncoding();
+    }
+
+    @Override
+    public boolean isChunked() {
+        return producer.isChunked();
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+        return producer.getTrailerNames();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.async;
+
+import ee.datanor.httpclient.logger.capture.EntityCapture;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Captures the bytes the channel actually accepted, the capture is completed when the stream ends.
+ */
+class CapturingDataStreamChannel implements DataStreamChannel {
+
+    private final DataStreamChannel channel;
+    private final EntityCapture capture;
+
+    CapturingDataStreamChannel(DataStreamChannel channel, EntityCapture capture) {
+        this.channel = channel;
+        this.capture = capture;
+    }
+
+    DataStreamChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void requestOutput() {
+        channel.requestOutput();
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int position = src.position();
+        int written = channel.write(src);
+        if (written > 0) {
+            ByteBuffer accepted = src.duplicate();
+            accepted.limit(position + written).position(position);
+            capture.capture(accepted);
+        }
+        return written;
+    }
+
+    @Override
+    public void endStream() throws IOException {
+        capture.complete();
+        channel.endStream();
+    }
+
+    @Override
+    public void endStream(List<? extends Header> trailers) throws IOException {
+        capture.complete();
+        channel.endStream(trailers);
+    }
+}
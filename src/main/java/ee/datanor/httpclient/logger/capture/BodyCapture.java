@@ -0,0 +1,199 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.capture;
+
+import ee.datanor.httpclient.logger.util.Xxh64;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.core5.http.HttpEntity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Keeps the first {@code limit} bytes of a body and counts the rest without storing it. With a {@link ContentDecoder}
+ * the captured bytes are the decoded ones and decoding stops as soon as the limit is reached.
+ */
+@Slf4j
+public class BodyCapture {
+
+    private static final int SCRATCH_SIZE = 1024;
+
+    private final byte[] buffer;
+    private final ContentDecoder decoder;
+    private byte[] scratch;
+    private int size;
+    private long totalLength;
+    private boolean finished;
+
+    public BodyCapture(int limit) {
+        this(limit, null);
+    }
+
+    public BodyCapture(int limit, ContentDecoder decoder) {
+        this.buffer = new byte[Math.max(limit, 0)];
+        this.decoder = decoder;
+    }
+
+    public void capture(int b) {
+        if (decoder == null) {
+            totalLength++;
+            if (size < buffer.length) {
+                buffer[size++] = (byte) b;
+            }
+            return;
+        }
+        byte[] singleByte = getScratch();
+        singleByte[0] = (byte) b;
+        capture(singleByte, 0, 1);
+    }
+
+    public void capture(byte[] b, int off, int len) {
+        totalLength += len;
+        if (decoder == null) {
+            int copied = Math.min(len, buffer.length - size);
+            if (copied > 0) {
+                System.arraycopy(b, off, buffer, size, copied);
+                size += copied;
+            }
+            return;
+        }
+        if (!finished) {
+            decode(b, off, len);
+        }
+    }
+
+    /**
+     * Captures the remaining bytes of the buffer without changing its position.
+     */
+    public void capture(ByteBuffer src) {
+        int len = src.remaining();
+        if (src.hasArray()) {
+            capture(src.array(), src.arrayOffset() + src.position(), len);
+            return;
+        }
+        if (decoder == null) {
+            int copied = Math.min(len, buffer.length - size);
+            src.get(src.position(), buffer, size, copied);
+            size += copied;
+            totalLength += len;
+            return;
+        }
+        if (finished) {
+            totalLength += len;
+            return;
+        }
+        byte[] chunk = getScratch();
+        for (int pos = src.position(); pos < src.limit(); pos += chunk.length) {
+            int chunkLength = Math.min(chunk.length, src.limit() - pos);
+            src.get(pos, chunk, 0, chunkLength);
+            capture(chunk, 0, chunkLength);
+        }
+    }
+
+    /**
+     * Writes a repeatable entity into the capture, the copying stops as soon as the capture is full.
+     */
+    public void captureFrom(HttpEntity httpEntity) throws IOException {
+        try {
+            httpEntity.writeTo(CapturingOutputStream.sink(this));
+        } catch (CapturingOutputStream.CaptureLimitReachedException e) {
+            // the rest of the entity is not needed
+        }
+    }
+
+    private void decode(byte[] b, int off, int len) {
+        try {
+            decoder.setInput(b, off, len);
+            int decoded;
+            do {
+                decoded = decoder.decode(buffer, size, buffer.length - size);
+                size += decoded;
+            } while (decoded > 0 && !isFull());
+        } catch (IOException e) {
+            log.debug("Failed to decode captured body, keeping {} decoded bytes - {}", size, e.getMessage());
+            finish();
+        }
+        if (isFull()) {
+            finish();
+        }
+    }
+
+    private byte[] getScratch() {
+        if (scratch == null) {
+            scratch = new byte[SCRATCH_SIZE];
+        }
+        return scratch;
+    }
+
+    /**
+     * Releases the decoder, bytes captured afterwards are only counted.
+     */
+    public void finish() {
+        if (!finished) {
+            finished = true;
+            if (decoder != null) {
+                decoder.close();
+            }
+        }
+    }
+
+    public boolean isFull() {
+        return size == buffer.length;
+    }
+
+    public int remaining() {
+        return buffer.length - size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of bytes passed to the capture, before decoding.
+     */
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    /**
+     * XXH64 of the captured bytes.
+     */
+    public long hash() {
+        return Xxh64.hash(buffer, 0, size, 0);
+    }
+
+    public String decode(Charset charset) {
+        if (size == 0) {
+            return "";
+        }
+        if (!isFull()) {
+            return new String(buffer, 0, size, charset);
+        }
+        // the prefix may end in the middle of a multibyte character, leave those bytes undecoded
+        CharsetDecoder charsetDecoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer out = CharBuffer.allocate((int) Math.ceil(size * (double) charsetDecoder.maxCharsPerByte()));
+        charsetDecoder.decode(ByteBuffer.wrap(buffer, 0, size), out, false);
+        return out.flip().toString();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.capture;
+
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public class CapturingHttpEntity extends HttpEntityWrapper {
+
+    private final BodyCapture capture;
+    private final Runnable onComplete;
+    private boolean consumed;
+
+    public CapturingHttpEntity(HttpEntity wrappedEntity, BodyCapture capture, Runnable onComplete) {
+        super(wrappedEntity);
+        this.capture = capture;
+        this.onComplete = onComplete;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        if (consumed) {
+            return super.getContent();
+        }
+        consumed = true;
+        return new CapturingInputStream(super.getContent(), capture, onComplete);
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        if (consumed) {
+            super.writeTo(outStream);
+            return;
+        }
+        consumed = true;
+        try {
+            super.writeTo(new CapturingOutputStream(outStream, capture));
+        } finally {
+            onComplete.run();
+        }
+    }
+
+    public BodyCapture getCapture() {
+        return capture;
+    }
+}
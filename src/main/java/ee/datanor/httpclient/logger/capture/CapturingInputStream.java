@@ -0,0 +1,130 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.capture;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Tees the bytes read by the application into a {@link BodyCapture} and signals completion on EOF or close.
+ */
+public class CapturingInputStream extends FilterInputStream {
+
+    private static final int SKIP_BUFFER_SIZE = 2048;
+
+    private final BodyCapture capture;
+    private final Runnable onComplete;
+    private boolean completed;
+
+    public CapturingInputStream(InputStream in, BodyCapture capture, Runnable onComplete) {
+        super(in);
+        this.capture = capture;
+        this.onComplete = onComplete;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b == -1) {
+            complete();
+        } else {
+            capture.capture(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read == -1) {
+            complete();
+        } else if (read > 0) {
+            capture.capture(b, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // skipped bytes still have to pass through the capture
+        byte[] skipBuffer = new byte[(int) Math.min(SKIP_BUFFER_SIZE, Math.max(n, 0))];
+        long remaining = n;
+        while (remaining > 0) {
+            int read = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            remaining -= read;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // mark/reset would replay bytes into the capture
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!completed) {
+            drainIntoCapture();
+        }
+        try {
+            super.close();
+        } finally {
+            complete();
+        }
+    }
+
+    private void drainIntoCapture() {
+        // closing the underlying stream consumes the remainder anyway, fill the capture on the way
+        int room = capture.remaining();
+        if (room <= 0) {
+            return;
+        }
+        byte[] drainBuffer = new byte[Math.min(SKIP_BUFFER_SIZE, room)];
+        try {
+            while (!capture.isFull()) {
+                int read = super.read(drainBuffer, 0, Math.min(drainBuffer.length, capture.remaining()));
+                if (read < 0) {
+                    break;
+                }
+                capture.capture(drainBuffer, 0, read);
+            }
+        } catch (IOException e) {
+            // keep what was captured so far, close() reports the stream failure
+        }
+    }
+
+    private void complete() {
+        if (!completed) {
+            completed = true;
+            onComplete.run();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.capture;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Tees written bytes into a {@link BodyCapture}. Without a target stream it is a capped sink that stops the writer
+ * once the capture is full.
+ */
+public class CapturingOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final BodyCapture capture;
+
+    public CapturingOutputStream(OutputStream out, BodyCapture capture) {
+        this.out = out;
+        this.capture = capture;
+    }
+
+    public static CapturingOutputStream sink(BodyCapture capture) {
+        return new CapturingOutputStream(null, capture);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (out != null) {
+            out.write(b);
+        }
+        capture.capture(b);
+        checkLimit();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (out != null) {
+            out.write(b, off, len);
+        }
+        capture.capture(b, off, len);
+        checkLimit();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+    }
+
+    private void checkLimit() throws CaptureLimitReachedException {
+        if (out == null && capture.isFull()) {
+            throw CaptureLimitReachedException.INSTANCE;
+        }
+    }
+
+    static final class CaptureLimitReachedException extends IOException {
+        private static final long serialVersionUID = 1L;
+        private static final CaptureLimitReachedException INSTANCE = new CaptureLimitReachedException();
+
+        private CaptureLimitReachedException() {
+            super("Capture limit reached", null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
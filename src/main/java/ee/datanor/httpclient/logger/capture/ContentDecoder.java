@@ -0,0 +1,36 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.capture;
+
+import java.io.IOException;
+
+/**
+ * Incrementally decodes a content-encoded body for logging. The input array is only valid until
+ * {@link #decode(byte[], int, int)} returns 0, so implementations must not keep a reference to it afterwards.
+ */
+public interface ContentDecoder {
+
+    void setInput(byte[] b, int off, int len) throws IOException;
+
+    /**
+     * Decodes into {@code out} and returns the number of bytes produced, 0 when more input is needed.
+     */
+    int decode(byte[] out, int off, int len) throws IOException;
+
+    default void close() {
+    }
+}
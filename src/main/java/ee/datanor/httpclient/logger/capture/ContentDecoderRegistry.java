@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.capture;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public final class ContentDecoderRegistry {
+
+    private static final ContentDecoderRegistry DEFAULTS = new ContentDecoderRegistry(Map.of())
+            .with("gzip", GzipContentDecoder::new)
+            .with("x-gzip", GzipContentDecoder::new)
+            .with("deflate", DeflateContentDecoder::new);
+
+    private final Map<String, Supplier<ContentDecoder>> decoders;
+
+    private ContentDecoderRegistry(Map<String, Supplier<ContentDecoder>> decoders) {
+        this.decoders = decoders;
+    }
+
+    public static ContentDecoderRegistry defaults() {
+        return DEFAULTS;
+    }
+
+    public ContentDecoderRegistry with(String contentEncoding, Supplier<ContentDecoder> decoder) {
+        Map<String, Supplier<ContentDecoder>> copy = new HashMap<>(decoders);
+        copy.put(contentEncoding.toLowerCase(Locale.ROOT), decoder);
+        return new ContentDecoderRegistry(Map.copyOf(copy));
+    }
+
+    public boolean isIdentity(String contentEncoding) {
+        return contentEncoding == null || contentEncoding.isBlank() || "identity".equalsIgnoreCase(contentEncoding.trim());
+    }
+
+    /**
+     * Returns a new decoder for the encoding, or {@code null} when the encoding is not supported.
+     */
+    public ContentDecoder create(String contentEncoding) {
+        Supplier<ContentDecoder> decoder = decoders.get(contentEncoding.trim().toLowerCase(Locale.ROOT));
+        return decoder == null ? null : decoder.get();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.capture;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds back a log record until every registered part (e.g. a streamed body capture) has completed.
+ */
+@Slf4j
+public final class DeferredLog {
+    public static final String REQUEST_ATTRIBUTE = "httpclient-logger.deferred-request-log";
+    public static final String RESPONSE_ATTRIBUTE = "httpclient-logger.deferred-response-log";
+
+    private final List<Part> parts = new ArrayList<>();
+    private final List<Runnable> beforeEmit = new ArrayList<>();
+    private int pending;
+    private Runnable emitter;
+    private boolean emitted;
+
+    public static DeferredLog get(HttpContext context, String attribute) {
+        Object existing = context.getAttribute(attribute);
+        if (existing instanceof DeferredLog) {
+            return (DeferredLog) existing;
+        }
+        DeferredLog deferredLog = new DeferredLog();
+        context.setAttribute(attribute, deferredLog);
+        return deferredLog;
+    }
+
+    public static DeferredLog find(HttpContext context, String attribute) {
+        if (context == null) {
+            return null;
+        }
+        Object existing = context.getAttribute(attribute);
+        return existing instanceof DeferredLog ? (DeferredLog) existing : null;
+    }
+
+    public synchronized Part register(Runnable finisher) {
+        Part part = new Part(finisher);
+        parts.add(part);
+        pending++;
+        return part;
+    }
+
+    /**
+     * Runs the listener right before the record is written, e.g. to put values that are known only by then.
+     */
+    public synchronized void beforeEmit(Runnable listener) {
+        beforeEmit.add(listener);
+    }
+
+    public synchronized boolean isPending() {
+        return pending > 0;
+    }
+
+    public void whenComplete(Runnable emitter) {
+        synchronized (this) {
+            if (pending > 0) {
+                this.emitter = emitter;
+                return;
+            }
+            emitted = true;
+        }
+        emit(emitter);
+    }
+
+    public void flush() {
+        List<Part> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(parts);
+        }
+        remaining.forEach(Part::complete);
+    }
+
+    private void partCompleted() {
+        Runnable toRun;
+        synchronized (this) {
+            pending--;
+            if (pending > 0 || emitter == null || emitted) {
+                return;
+            }
+            emitted = true;
+            toRun = emitter;
+        }
+        emit(toRun);
+    }
+
+    private void emit(Runnable toRun) {
+        List<Runnable> listeners;
+        synchronized (this) {
+            listeners = new ArrayList<>(beforeEmit);
+        }
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.warn("Deferred log listener failed - " + e.getMessage(), e);
+            }
+        }
+        toRun.run();
+    }
+
+    public final class Part {
+        private final Runnable finisher;
+        private boolean completed;
+
+        private Part(Runnable finisher) {
+            this.finisher = finisher;
+        }
+
+        public void complete() {
+            synchronized (DeferredLog.this) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+            }
+            try {
+                finisher.run();
+            } catch (RuntimeException e) {
+                log.warn("Failed to complete deferred log record - " + e.getMessage(), e);
+            }
+            partCompleted();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.capture;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decodes {@code Content-Encoding: deflate}, which is zlib wrapped by the spec but sent as raw deflate by some servers.
+ * The two leading bytes decide which one it is.
+ */
+public class DeflateContentDecoder implements ContentDecoder {
+
+    private static final int HEADER_LENGTH = 2;
+    private static final int ZLIB_CHECK = 31;
+
+    private final byte[] header = new byte[HEADER_LENGTH];
+    private int headerSize;
+    private Inflater inflater;
+
+    @Override
+    public void setInput(byte[] b, int off, int len) throws IOException {
+        if (inflater != null) {
+            inflater.setInput(b, off, len);
+            return;
+        }
+        int pos = off;
+        int end = off + len;
+        while (headerSize < HEADER_LENGTH && pos < end) {
+            header[headerSize++] = b[pos++];
+        }
+        if (headerSize < HEADER_LENGTH) {
+            return;
+        }
+        inflater = new Inflater(!isZlibHeader());
+        // the header bytes belong to the compressed data, hand them over together with the rest of this chunk
+        byte[] input = new byte[HEADER_LENGTH + end - pos];
+        System.arraycopy(header, 0, input, 0, HEADER_LENGTH);
+        System.arraycopy(b, pos, input, HEADER_LENGTH, end - pos);
+        inflater.setInput(input);
+    }
+
+    @Override
+    public int decode(byte[] out, int off, int len) throws IOException {
+        if (inflater == null || inflater.finished()) {
+            return 0;
+        }
+        try {
+            return inflater.inflate(out, off, len);
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+    private boolean isZlibHeader() {
+        int cmf = header[0] & 0xff;
+        int flg = header[1] & 0xff;
+        return (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % ZLIB_CHECK == 0;
+    }
+}
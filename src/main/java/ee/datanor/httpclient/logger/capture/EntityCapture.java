@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.capture;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Capture of an entity that is streamed in chunks outside of {@code HttpEntity}, e.g. by the async client.
+ */
+public final class EntityCapture {
+
+    private final BodyCapture capture;
+    private final Runnable onComplete;
+    private boolean completed;
+
+    public EntityCapture(BodyCapture capture, Runnable onComplete) {
+        this.capture = capture;
+        this.onComplete = onComplete;
+    }
+
+    public void capture(ByteBuffer src) {
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            capture.capture(src);
+        }
+    }
+
+    public void complete() {
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            completed = true;
+        }
+        onComplete.run();
+    }
+
+    public BodyCapture getCapture() {
+        return capture;
+    }
+}
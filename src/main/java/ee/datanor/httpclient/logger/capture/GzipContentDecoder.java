@@ -0,0 +1,137 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.capture;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Parses the gzip member header byte by byte, so it may be split across any number of chunks,
+ * and inflates the deflate stream that follows it. The trailer is never read.
+ */
+public class GzipContentDecoder implements ContentDecoder {
+
+    private static final int FIXED_HEADER_LENGTH = 10;
+    private static final int FLAGS_POSITION = 3;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int[] MAGIC = new int[] {0x1f, 0x8b, 8};
+
+    private enum State { HEADER, EXTRA_LENGTH, EXTRA, NAME, COMMENT, HEADER_CRC, BODY }
+
+    private final Inflater inflater = new Inflater(true);
+    private State state = State.HEADER;
+    private int flags;
+    private int position;
+    private int extraLength;
+
+    @Override
+    public void setInput(byte[] b, int off, int len) throws IOException {
+        int pos = off;
+        int end = off + len;
+        while (state != State.BODY && pos < end) {
+            consumeHeaderByte(b[pos++] & 0xff);
+        }
+        if (state == State.BODY && pos < end) {
+            inflater.setInput(b, pos, end - pos);
+        }
+    }
+
+    @Override
+    public int decode(byte[] out, int off, int len) throws IOException {
+        if (state != State.BODY || inflater.finished()) {
+            return 0;
+        }
+        try {
+            return inflater.inflate(out, off, len);
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        inflater.end();
+    }
+
+    private void consumeHeaderByte(int value) throws IOException {
+        switch (state) {
+            case HEADER:
+                consumeFixedHeaderByte(value);
+                break;
+            case EXTRA_LENGTH:
+                extraLength |= value << (8 * position++);
+                if (position == 2) {
+                    moveTo(extraLength > 0 ? State.EXTRA : nextState(State.EXTRA));
+                }
+                break;
+            case EXTRA:
+                if (++position == extraLength) {
+                    moveTo(nextState(State.EXTRA));
+                }
+                break;
+            case NAME:
+            case COMMENT:
+                if (value == 0) {
+                    moveTo(nextState(state));
+                }
+                break;
+            default:
+                if (++position == 2) {
+                    moveTo(State.BODY);
+                }
+                break;
+        }
+    }
+
+    private void consumeFixedHeaderByte(int value) throws IOException {
+        if (position < MAGIC.length && value != MAGIC[position]) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (position == FLAGS_POSITION) {
+            flags = value;
+        }
+        if (++position == FIXED_HEADER_LENGTH) {
+            moveTo(nextState(State.HEADER));
+        }
+    }
+
+    private State nextState(State current) {
+        if (current.ordinal() < State.EXTRA_LENGTH.ordinal() && (flags & FEXTRA) != 0) {
+            return State.EXTRA_LENGTH;
+        }
+        if (current.ordinal() < State.NAME.ordinal() && (flags & FNAME) != 0) {
+            return State.NAME;
+        }
+        if (current.ordinal() < State.COMMENT.ordinal() && (flags & FCOMMENT) != 0) {
+            return State.COMMENT;
+        }
+        if (current.ordinal() < State.HEADER_CRC.ordinal() && (flags & FHCRC) != 0) {
+            return State.HEADER_CRC;
+        }
+        return State.BODY;
+    }
+
+    private void moveTo(State next) {
+        state = next;
+        position = 0;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.classic;
+
+import ee.datanor.httpclient.logger.HttpClientLogger;
+import ee.datanor.httpclient.logger.capture.BodyCapture;
+import ee.datanor.httpclient.logger.capture.CapturingHttpEntity;
+import ee.datanor.httpclient.logger.metrics.RouteMetrics;
+import ee.datanor.httpclient.logger.timing.ExchangeTiming;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Logs classic client exchanges from a single exec chain element instead of a request and a response interceptor,
+ * and times them for {@code ResponseDurationLogProcessor}.
+ *
+ * <pre>
+ * HttpClientBuilder.create()
+ *     .addExecInterceptorAfter(ChainElement.PROTOCOL.name(), "httpclient-logger", new HttpClientLoggerExecHandler(httpClientLogger))
+ * </pre>
+ */
+public class HttpClientLoggerExecHandler implements ExecChainHandler {
+
+    private final HttpClientLogger httpClientLogger;
+    private final RouteMetrics routeMetrics;
+
+    public HttpClientLoggerExecHandler(HttpClientLogger httpClientLogger) {
+        this(httpClientLogger, null);
+    }
+
+    /**
+     * With route metrics every exchange is recorded, whether it is logged or not, once its response body has been read.
+     */
+    public HttpClientLoggerExecHandler(HttpClientLogger httpClientLogger, RouteMetrics routeMetrics) {
+        this.httpClientLogger = httpClientLogger;
+        this.routeMetrics = routeMetrics;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain) throws IOException, HttpException {
+        HttpClientContext context = scope.clientContext;
+        if (context.getHttpRoute() == null) {
+            // the route is set by the connect step, processors expect it as with interceptors
+            context.setAttribute(HttpClientContext.HTTP_ROUTE, scope.route);
+        }
+        ExchangeTiming timing = ExchangeTiming.start(context);
+        String route = routeMetrics == null ? null : routeMetrics.getRouteTemplate(request);
+        httpClientLogger.logRequest(request, context);
+        ClassicHttpResponse response = proceed(request, scope, chain, timing, route);
+        timing.markResponse();
+        int status = response.getCode();
+        HttpEntity entity = response.getEntity();
+        if (entity != null) {
+            // innermost wrapper, the end of the body is marked before any body capture completes its record
+            AtomicBoolean recorded = new AtomicBoolean();
+            response.setEntity(new CapturingHttpEntity(entity, new BodyCapture(0), () -> {
+                timing.markBodyEnd();
+                // the content of a repeatable entity may be read more than once
+                if (recorded.compareAndSet(false, true)) {
+                    record(request, scope, route, status, timing);
+                }
+            }));
+        } else {
+            record(request, scope, route, status, timing);
+        }
+        httpClientLogger.logResponse(response, context);
+        return response;
+    }
+
+    private ClassicHttpResponse proceed(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain, ExchangeTiming timing, String route)
+            throws IOException, HttpException {
+        try {
+            return chain.proceed(request, scope);
+        } catch (IOException | HttpException | RuntimeException e) {
+            record(request, scope, route, RouteMetrics.FAILED, timing);
+            httpClientLogger.flushRequest(scope.clientContext, e);
+            throw e;
+        }
+    }
+
+    private void record(ClassicHttpRequest request, ExecChain.Scope scope, String route, int status, ExchangeTiming timing) {
+        if (routeMetrics != null) {
+            routeMetrics.record(scope.route.getTargetHost(), request.getMethod(), route, status, timing.getDuration());
+        }
+    }
+}
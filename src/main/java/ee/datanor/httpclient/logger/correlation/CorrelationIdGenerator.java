@@ -0,0 +1,93 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.correlation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates compact, time-ordered correlation IDs: 41 bits of milliseconds since 2024, a 22 bit sequence and a 10 bit
+ * node id, written as 15 characters of lower case Crockford base32. The timestamp and sequence share one
+ * {@code AtomicLong} that only moves forward, so IDs of one generator are strictly increasing and sort by time as
+ * strings, even when the clock goes back. A full sequence borrows from the next millisecond.
+ */
+public final class CorrelationIdGenerator {
+    public static final int MAX_NODE_ID = (1 << 10) - 1;
+
+    static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    static final int SEQUENCE_BITS = 22;
+    private static final char[] ALPHABET = "0123456789abcdefghjkmnpqrstvwxyz".toCharArray();
+    private static final int TIME_CHARS = 13;
+    private static final int NODE_CHARS = 2;
+    private static final CorrelationIdGenerator DEFAULT = new CorrelationIdGenerator(defaultNodeId());
+
+    private final int nodeId;
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * @param nodeId identity of the process among the ones writing to the same logs, 0 to {@link #MAX_NODE_ID}
+     */
+    public CorrelationIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Generator with a node id derived from the host name and process id.
+     */
+    public static CorrelationIdGenerator getDefault() {
+        return DEFAULT;
+    }
+
+    public String next() {
+        return format(nextState(), nodeId);
+    }
+
+    /**
+     * Timestamp and sequence of the next ID, strictly greater than the previous one.
+     */
+    long nextState() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        return state.accumulateAndGet(now, (previous, current) -> Math.max(previous + 1, current));
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    static String format(long state, int nodeId) {
+        char[] id = new char[TIME_CHARS + NODE_CHARS];
+        long value = state;
+        for (int i = TIME_CHARS - 1; i >= 0; i--) {
+            id[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        id[TIME_CHARS] = ALPHABET[nodeId >>> 5];
+        id[TIME_CHARS + 1] = ALPHABET[nodeId & 31];
+        return new String(id);
+    }
+
+    private static int defaultNodeId() {
+        String host = System.getenv("HOSTNAME");
+        if (host == null) {
+            host = System.getenv("COMPUTERNAME");
+        }
+        long hash = 31L * (host == null ? 0 : host.hashCode()) + ProcessHandle.current().pid();
+        return (int) ((hash ^ (hash >>> 32)) & MAX_NODE_ID);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.correlation;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * W3C Trace Context {@code traceparent} values, {@code 00-<trace-id>-<parent-id>-01}. Trace ids made here start with
+ * the timestamp and sequence of a {@link CorrelationIdGenerator}, so they are time-ordered as well.
+ */
+public final class Traceparent {
+    public static final String HEADER = "traceparent";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int TRACE_ID_LENGTH = 32;
+    private static final int PARENT_ID_LENGTH = 16;
+    private static final int LENGTH = 55;
+
+    private Traceparent() { }
+
+    public static String newTraceId(CorrelationIdGenerator generator) {
+        long low = ((long) generator.getNodeId() << 54) | (ThreadLocalRandom.current().nextLong() >>> 10);
+        return new StringBuilder(TRACE_ID_LENGTH).append(hex(generator.nextState())).append(hex(low)).toString();
+    }
+
+    public static String newParentId() {
+        long id = 0;
+        while (id == 0) {
+            id = ThreadLocalRandom.current().nextLong();
+        }
+        return String.valueOf(hex(id));
+    }
+
+    public static String format(String traceId, String parentId) {
+        return "00-" + traceId + "-" + parentId + "-01";
+    }
+
+    /**
+     * Trace id of a {@code traceparent} value or of a bare trace id, {@code null} when the value is neither.
+     */
+    public static String parseTraceId(String value) {
+        if (value == null) {
+            return null;
+        }
+        String traceId;
+        if (value.length() == TRACE_ID_LENGTH) {
+            traceId = value;
+        } else if (value.length() == LENGTH && value.charAt(2) == '-' && value.charAt(35) == '-' && value.charAt(52) == '-') {
+            traceId = value.substring(3, 35);
+        } else {
+            return null;
+        }
+        return isHex(traceId) && !isZero(traceId) ? traceId : null;
+    }
+
+    private static char[] hex(long value) {
+        char[] hex = new char[PARENT_ID_LENGTH];
+        long remaining = value;
+        for (int i = hex.length - 1; i >= 0; i--) {
+            hex[i] = HEX[(int) (remaining & 15)];
+            remaining >>>= 4;
+        }
+        return hex;
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isZero(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
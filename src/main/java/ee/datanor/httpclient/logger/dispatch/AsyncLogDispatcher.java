@@ -0,0 +1,164 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.dispatch;
+
+import ee.datanor.httpclient.logger.event.LogEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves record rendering (body decoding, masking, escaping) and the logger call off the request thread. The request
+ * thread only puts a reference to the exchange's {@link LogEvent} into a preallocated ring slot, background workers
+ * render and write the records.
+ */
+@Slf4j
+public class AsyncLogDispatcher implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final LogRingBuffer ring;
+    private final OverflowPolicy overflowPolicy;
+    private final List<Thread> workers = new ArrayList<>();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean running = true;
+
+    public AsyncLogDispatcher() {
+        this(DEFAULT_CAPACITY, 1, OverflowPolicy.DROP);
+    }
+
+    public AsyncLogDispatcher(int capacity, int workerCount, OverflowPolicy overflowPolicy) {
+        this.ring = new LogRingBuffer(capacity);
+        this.overflowPolicy = overflowPolicy;
+        for (int i = 0; i < Math.max(workerCount, 1); i++) {
+            Thread worker = new Thread(this::work, "httpclient-logger-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        workers.forEach(Thread::start);
+    }
+
+    /**
+     * Hands the record to the workers, returns {@code false} when it was dropped.
+     */
+    public boolean dispatch(LogRecordEmitter emitter, Logger logger, String message, LogEvent event, boolean response) {
+        if (running && ring.offer(emitter, logger, message, event, response)) {
+            dispatched.increment();
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.BLOCK && running) {
+            blocked.increment();
+            return dispatchBlocking(emitter, logger, message, event, response);
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private boolean dispatchBlocking(LogRecordEmitter emitter, Logger logger, String message, LogEvent event, boolean response) {
+        long parkNanos = MIN_PARK_NANOS;
+        while (running) {
+            if (ring.offer(emitter, logger, message, event, response)) {
+                dispatched.increment();
+                return true;
+            }
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private void work() {
+        LogRingBuffer.Slot slot = new LogRingBuffer.Slot();
+        long parkNanos = MIN_PARK_NANOS;
+        while (running || ring.size() > 0) {
+            if (ring.poll(slot)) {
+                emit(slot);
+                parkNanos = MIN_PARK_NANOS;
+            } else if (running) {
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        }
+    }
+
+    private void emit(LogRingBuffer.Slot slot) {
+        try {
+            slot.emit();
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("Failed to write log record - " + e.getMessage(), e);
+        } finally {
+            slot.clear();
+        }
+    }
+
+    /**
+     * Stops accepting records and waits for the workers to write the ones already queued.
+     */
+    @Override
+    public void close() {
+        running = false;
+        long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MILLIS;
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public long getDispatchedCount() {
+        return dispatched.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Number of records that found the ring full and waited for a slot with {@link OverflowPolicy#BLOCK}.
+     */
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public int getQueueSize() {
+        return ring.size();
+    }
+
+    public int getCapacity() {
+        return ring.capacity();
+    }
+}
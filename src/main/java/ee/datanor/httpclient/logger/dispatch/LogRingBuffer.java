@@ -0,0 +1,121 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.dispatch;
+
+import ee.datanor.httpclient.logger.event.LogEvent;
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer ring of preallocated record slots (Vyukov's bounded queue). Each slot
+ * has a sequence number telling whether it is free for the producer at that position or filled for the consumer.
+ */
+final class LogRingBuffer {
+
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        slots = new Slot[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    boolean offer(LogRecordEmitter emitter, Logger logger, String message, LogEvent event, boolean response) {
+        long position = head.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0 && head.compareAndSet(position, position + 1)) {
+                slots[index].set(emitter, logger, message, event, response);
+                sequences.set(index, position + 1);
+                return true;
+            }
+            if (difference < 0) {
+                return false;
+            }
+            position = head.get();
+        }
+    }
+
+    /**
+     * Moves the oldest record into the consumer's own slot and frees its ring slot.
+     */
+    boolean poll(Slot target) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0 && tail.compareAndSet(position, position + 1)) {
+                slots[index].moveTo(target);
+                sequences.set(index, position + mask + 1);
+                return true;
+            }
+            if (difference < 0) {
+                return false;
+            }
+            position = tail.get();
+        }
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    int size() {
+        return (int) Math.max(0, head.get() - tail.get());
+    }
+
+    static final class Slot {
+        private LogRecordEmitter emitter;
+        private Logger logger;
+        private String message;
+        private LogEvent event;
+        private boolean response;
+
+        void set(LogRecordEmitter recordEmitter, Logger recordLogger, String recordMessage, LogEvent recordEvent, boolean responseRecord) {
+            this.emitter = recordEmitter;
+            this.logger = recordLogger;
+            this.message = recordMessage;
+            this.event = recordEvent;
+            this.response = responseRecord;
+        }
+
+        void moveTo(Slot target) {
+            target.set(emitter, logger, message, event, response);
+            set(null, null, null, null, false);
+        }
+
+        void emit() {
+            emitter.emit(logger, message, event, response);
+        }
+
+        void clear() {
+            set(null, null, null, null, false);
+        }
+    }
+}
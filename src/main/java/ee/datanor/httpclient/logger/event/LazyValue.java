@@ -0,0 +1,51 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.event;
+
+import java.util.function.Supplier;
+
+/**
+ * Event value computed when the record is rendered, e.g. a decoded and masked body. Rendering happens on the thread
+ * that writes the record, and not at all when the logger is disabled.
+ */
+public final class LazyValue implements Supplier<Object> {
+
+    private Supplier<?> supplier;
+    private Object value;
+
+    private LazyValue(Supplier<?> supplier) {
+        this.supplier = supplier;
+    }
+
+    public static LazyValue of(Supplier<?> supplier) {
+        return new LazyValue(supplier);
+    }
+
+    @Override
+    public synchronized Object get() {
+        if (supplier != null) {
+            value = supplier.get();
+            supplier = null;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(get());
+    }
+}
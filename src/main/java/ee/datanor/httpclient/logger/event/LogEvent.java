@@ -0,0 +1,260 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.event;
+
+import ee.datanor.httpclient.logger.util.EscapeUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Fields of one exchange, written by the processors and read when the request and response records are written.
+ * Values are kept as they are given and rendered (empty replacement and escaping) once, when first read as text.
+ * {@link LazyValue}s are computed at that point too.
+ * The event is stored on the {@link HttpContext} and reused by the next exchange of the same context once its
+ * records have been written.
+ */
+public final class LogEvent {
+    public static final String ATTRIBUTE = "httpclient-logger.log-event";
+    public static final String EMPTY_REPLACEMENT = "-";
+
+    private final Object[] values = new Object[LogField.fields().length];
+    private final String[] rendered = new String[LogField.fields().length];
+    private Map<String, Object> extras;
+    private Map<String, Object> responseExtras;
+    private boolean response;
+    private int holds;
+
+    /**
+     * Returns the event of the context for a new exchange, a cleared one if the previous exchange is done with it.
+     */
+    public static LogEvent begin(HttpContext context) {
+        Object existing = context.getAttribute(ATTRIBUTE);
+        if (existing instanceof LogEvent && ((LogEvent) existing).resetIfReleased()) {
+            return (LogEvent) existing;
+        }
+        LogEvent event = new LogEvent();
+        context.setAttribute(ATTRIBUTE, event);
+        return event;
+    }
+
+    public static LogEvent find(HttpContext context) {
+        if (context == null) {
+            return null;
+        }
+        Object existing = context.getAttribute(ATTRIBUTE);
+        return existing instanceof LogEvent ? (LogEvent) existing : null;
+    }
+
+    public synchronized void set(LogField field, Object value) {
+        values[field.ordinal()] = value;
+        rendered[field.ordinal()] = null;
+    }
+
+    public void set(String key, Object value) {
+        LogField field = LogField.forKey(key);
+        if (field != null) {
+            set(field, value);
+            return;
+        }
+        synchronized (this) {
+            if (response) {
+                responseExtras = put(responseExtras, key, value);
+            } else {
+                extras = put(extras, key, value);
+            }
+        }
+    }
+
+    /**
+     * Keys that are not {@link LogField}s set from now on belong to the response record, they are left out of the
+     * request record even when it is written later.
+     */
+    public synchronized void beginResponse() {
+        response = true;
+    }
+
+    public synchronized Object get(LogField field) {
+        return resolve(values[field.ordinal()]);
+    }
+
+    public Object get(String key) {
+        LogField field = LogField.forKey(key);
+        if (field != null) {
+            return get(field);
+        }
+        synchronized (this) {
+            return resolve(extra(key));
+        }
+    }
+
+    /**
+     * Returns the value as written to the log, {@code null} if the field was not set.
+     */
+    public synchronized String getText(LogField field) {
+        int index = field.ordinal();
+        if (rendered[index] == null && values[index] != null) {
+            rendered[index] = render(values[index]);
+        }
+        return rendered[index];
+    }
+
+    public String getText(String key) {
+        LogField field = LogField.forKey(key);
+        if (field != null) {
+            return getText(field);
+        }
+        Object value = get(key);
+        return value == null ? null : render(value);
+    }
+
+    /**
+     * Appends the value as written to the log, {@code -} if the field was not set. A value that was not read as text
+     * yet is escaped straight into the builder.
+     */
+    public synchronized void appendText(LogField field, StringBuilder out) {
+        String text = rendered[field.ordinal()];
+        if (text != null) {
+            out.append(text);
+        } else {
+            appendRendered(values[field.ordinal()], out);
+        }
+    }
+
+    public void appendText(String key, StringBuilder out) {
+        LogField field = LogField.forKey(key);
+        if (field != null) {
+            appendText(field, out);
+            return;
+        }
+        synchronized (this) {
+            appendRendered(extra(key), out);
+        }
+    }
+
+    /**
+     * Passes the rendered fields to the consumer, without the response fields and keys for the request record.
+     */
+    public synchronized void forEachText(boolean includeResponse, BiConsumer<String, String> consumer) {
+        for (LogField field : LogField.fields()) {
+            if (values[field.ordinal()] != null && (includeResponse || !field.isResponse())) {
+                consumer.accept(field.getKey(), getText(field));
+            }
+        }
+        forEachExtra(includeResponse, (key, value) -> consumer.accept(key, render(value)));
+    }
+
+    /**
+     * Passes the values as they are, not escaped and {@link LazyValue}s computed, to the consumer. Fields that were not
+     * set or have no value are left out.
+     */
+    public synchronized void forEachValue(boolean includeResponse, BiConsumer<String, Object> consumer) {
+        for (LogField field : LogField.fields()) {
+            Object value = resolve(values[field.ordinal()]);
+            if (value != null && (includeResponse || !field.isResponse())) {
+                consumer.accept(field.getKey(), value);
+            }
+        }
+        forEachExtra(includeResponse, (key, value) -> {
+            Object resolved = resolve(value);
+            if (resolved != null) {
+                consumer.accept(key, resolved);
+            }
+        });
+    }
+
+    /**
+     * Keeps the event from being reused while a record is waiting to be written.
+     */
+    public synchronized void hold() {
+        holds++;
+    }
+
+    public synchronized void release() {
+        holds--;
+    }
+
+    private synchronized boolean resetIfReleased() {
+        if (holds > 0) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] = null;
+            rendered[i] = null;
+        }
+        if (extras != null) {
+            extras.clear();
+        }
+        if (responseExtras != null) {
+            responseExtras.clear();
+        }
+        response = false;
+        return true;
+    }
+
+    private static Map<String, Object> put(Map<String, Object> map, String key, Object value) {
+        Map<String, Object> target = map != null ? map : new LinkedHashMap<>();
+        target.put(key, value);
+        return target;
+    }
+
+    private Object extra(String key) {
+        if (responseExtras != null && responseExtras.containsKey(key)) {
+            return responseExtras.get(key);
+        }
+        return extras == null ? null : extras.get(key);
+    }
+
+    private void forEachExtra(boolean includeResponse, BiConsumer<String, Object> consumer) {
+        if (extras != null) {
+            extras.forEach((key, value) -> {
+                if (!includeResponse || responseExtras == null || !responseExtras.containsKey(key)) {
+                    consumer.accept(key, value);
+                }
+            });
+        }
+        if (includeResponse && responseExtras != null) {
+            responseExtras.forEach(consumer);
+        }
+    }
+
+    private static Object resolve(Object value) {
+        return value instanceof LazyValue ? ((LazyValue) value).get() : value;
+    }
+
+    private static void appendRendered(Object value, StringBuilder out) {
+        Object resolved = resolve(value);
+        String text = resolved == null ? null : resolved.toString();
+        if (StringUtils.isBlank(text) || "null".equalsIgnoreCase(text)) {
+            out.append(EMPTY_REPLACEMENT);
+        } else {
+            EscapeUtil.escape(text, out);
+        }
+    }
+
+    public static String render(Object value) {
+        Object resolved = resolve(value);
+        String text = resolved == null ? null : resolved.toString();
+        if (StringUtils.isBlank(text) || "null".equalsIgnoreCase(text)) {
+            return EMPTY_REPLACEMENT;
+        }
+        return EscapeUtil.escape(text);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.event;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fields written by the built-in processors. The key is the MDC key used when the event is bridged to MDC.
+ */
+public enum LogField {
+    REQUEST_TIME("HC_REQUEST_TIME", false),
+    REQUEST_HASH("HC_REQUEST_HASH", false),
+    REQUEST_LINE("HC_REQUEST_LINE", false),
+    REQUEST_ROUTE("HC_REQUEST_ROUTE", false),
+    REQUEST_HEADERS("HC_REQUEST_HEADERS", false),
+    REQUEST_BODY("HC_REQUEST_BODY", false),
+    RESPONSE_STATUS("HC_RESPONSE_STATUS", true),
+    RESPONSE_HEADERS("HC_RESPONSE_HEADERS", true),
+    RESPONSE_BODY("HC_RESPONSE_BODY", true),
+    RESPONSE_BODY_LENGTH("HC_RESPONSE_BODY_LENGTH", true),
+    RESPONSE_DURATION("HC_RESPONSE_DURATION", true),
+    RESPONSE_TTFB("HC_RESPONSE_TTFB", true),
+    RESPONSE_BODY_TIME("HC_RESPONSE_BODY_TIME", true);
+
+    private static final LogField[] FIELDS = values();
+    private static final Map<String, LogField> BY_KEY = new HashMap<>();
+
+    static {
+        for (LogField field : FIELDS) {
+            BY_KEY.put(field.key, field);
+        }
+    }
+
+    private final String key;
+    private final boolean response;
+
+    LogField(String key, boolean response) {
+        this.key = key;
+        this.response = response;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Response fields are left out of the request record.
+     */
+    public boolean isResponse() {
+        return response;
+    }
+
+    public static LogField forKey(String key) {
+        return BY_KEY.get(key);
+    }
+
+    static LogField[] fields() {
+        return FIELDS;
+    }
+}
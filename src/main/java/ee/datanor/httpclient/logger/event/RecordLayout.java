@@ -0,0 +1,47 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.event;
+
+/**
+ * Templates of the request and the response record. With a layout the logger writes each record as one rendered
+ * message, the log configuration only needs {@code %m%n}.
+ */
+public final class RecordLayout {
+    private final RecordTemplate request;
+    private final RecordTemplate response;
+
+    public RecordLayout(RecordTemplate request, RecordTemplate response) {
+        this.request = request;
+        this.response = response;
+    }
+
+    public static RecordLayout of(String requestPattern, String responsePattern) {
+        return new RecordLayout(RecordTemplate.compile(requestPattern), RecordTemplate.compile(responsePattern));
+    }
+
+    public RecordTemplate getRequest() {
+        return request;
+    }
+
+    public RecordTemplate getResponse() {
+        return response;
+    }
+
+    public String render(LogEvent event, boolean response) {
+        return (response ? this.response : request).render(event);
+    }
+}
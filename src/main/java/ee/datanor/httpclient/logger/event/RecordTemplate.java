@@ -0,0 +1,91 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Layout of a record compiled once from a pattern such as {@code "REQ\t%X{HC_REQUEST_HASH}\t%X{HC_REQUEST_LINE}"}.
+ * Rendering appends the literals and the escaped fields of the event in order into a builder reused by the thread,
+ * without going through MDC or a layout. Fields that were not set are written as {@code -}.
+ */
+public final class RecordTemplate {
+    private static final String FIELD_START = "%X{";
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private final String pattern;
+    private final String[] literals;
+    private final LogField[] fields;
+    private final String[] keys;
+
+    private RecordTemplate(String pattern, List<String> literals, List<String> keys) {
+        this.pattern = pattern;
+        this.literals = literals.toArray(new String[0]);
+        this.keys = keys.toArray(new String[0]);
+        this.fields = new LogField[this.keys.length];
+        for (int i = 0; i < this.keys.length; i++) {
+            fields[i] = LogField.forKey(this.keys[i]);
+        }
+    }
+
+    public static RecordTemplate compile(String pattern) {
+        List<String> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        int position = 0;
+        for (int start = pattern.indexOf(FIELD_START); start >= 0; start = pattern.indexOf(FIELD_START, position)) {
+            int end = pattern.indexOf('}', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated field at " + start + " in record pattern " + pattern);
+            }
+            literals.add(pattern.substring(position, start));
+            keys.add(pattern.substring(start + FIELD_START.length(), end));
+            position = end + 1;
+        }
+        literals.add(pattern.substring(position));
+        return new RecordTemplate(pattern, literals, keys);
+    }
+
+    public String render(LogEvent event) {
+        StringBuilder out = BUILDER.get();
+        out.setLength(0);
+        appendTo(event, out);
+        String record = out.toString();
+        if (out.capacity() > MAX_RETAINED_CAPACITY) {
+            // a large body is not kept alive by the thread
+            BUILDER.remove();
+        }
+        return record;
+    }
+
+    public void appendTo(LogEvent event, StringBuilder out) {
+        for (int i = 0; i < keys.length; i++) {
+            out.append(literals[i]);
+            if (fields[i] != null) {
+                event.appendText(fields[i], out);
+            } else {
+                event.appendText(keys[i], out);
+            }
+        }
+        out.append(literals[keys.length]);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+}
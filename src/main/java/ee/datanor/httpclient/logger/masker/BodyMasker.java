@@ -16,42 +16,39 @@
 
 package ee.datanor.httpclient.logger.masker;
 
-import lombok.extern.slf4j.Slf4j;
-
-import java.util.ArrayList;
-import java.util.ListIterator;
-import java.util.regex.Matcher;
+import java.util.List;
 import java.util.regex.Pattern;
 
-@Slf4j
+/**
+ * Replaces every capturing group of every match of the pattern with {@code ***}. Several maskers are applied together
+ * by {@link MaskingEngine}.
+ */
 public class BodyMasker {
 
     private final Pattern paramPattern;
+    private volatile MaskingEngine engine;
 
     public BodyMasker(String regexp) {
         this.paramPattern = Pattern.compile(regexp, Pattern.CASE_INSENSITIVE & Pattern.MULTILINE);
     }
 
-    public String mask(String content) {
-        long start = System.currentTimeMillis();
-        String response = content;
-        Matcher matcher = paramPattern.matcher(response);
-        ArrayList<int[]> replacePositions = new ArrayList<>();
-        while (matcher.find()) {
-            for (int i = matcher.groupCount(); i >0 ; i--) {
-                int startPos = matcher.start(i);
-                int endPos = matcher.end(i);
-                replacePositions.add(new int[] {startPos, endPos});
-            }
-        }
-        ListIterator<int[]> listIterator = replacePositions.listIterator(replacePositions.size());
-        while (listIterator.hasPrevious()) {
-            int[] postitions = listIterator.previous();
-            response = new StringBuilder(response).replace(postitions[0], postitions[1], "***").toString();
-        }
+    /**
+     * For maskers that do not use a pattern.
+     */
+    protected BodyMasker() {
+        this.paramPattern = null;
+    }
 
-        log.trace("Sensitive patterns replaced in {} ms", System.currentTimeMillis() - start);
+    public Pattern getPattern() {
+        return paramPattern;
+    }
 
-        return response;
+    public String mask(String content) {
+        MaskingEngine maskingEngine = engine;
+        if (maskingEngine == null) {
+            maskingEngine = MaskingEngine.compile(List.of(this));
+            engine = maskingEngine;
+        }
+        return maskingEngine.mask(content);
     }
 }
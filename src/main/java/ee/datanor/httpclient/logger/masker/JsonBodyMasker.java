@@ -0,0 +1,281 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.masker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Masks the values of JSON fields by name, in one pass over the body and without regular expressions.
+ * A field is either a name matched at any depth, e.g. {@code password}, or a path from the root, e.g.
+ * {@code $.customer.*.ssn}, where {@code *} matches any field name or array index. Names are case-insensitive,
+ * escaped names are decoded before matching. The whole value is replaced, objects and arrays included, and a value
+ * cut off by the logged length limit is masked up to the end of the body.
+ */
+public class JsonBodyMasker extends StructuredBodyMasker {
+    private static final String MASKED_VALUE = "\"" + MaskingEngine.MASK + "\"";
+
+    private final Set<String> fieldNames = new HashSet<>();
+    private final List<String[]> fieldPaths = new ArrayList<>();
+
+    public JsonBodyMasker(Set<String> fields) {
+        super();
+        for (String field : fields) {
+            String name = field.toLowerCase(Locale.ROOT);
+            if (name.startsWith("$.")) {
+                fieldPaths.add(name.substring(2).replace("[*]", ".*").split("\\."));
+            } else {
+                fieldNames.add(name);
+            }
+        }
+    }
+
+    @Override
+    public boolean supports(String mimeType) {
+        return mimeType != null && mimeType.contains("json");
+    }
+
+    @Override
+    public String mask(String content) {
+        if (content == null) {
+            return null;
+        }
+        return new Scan(content).run();
+    }
+
+    private boolean isMasked(Scan scan) {
+        if (scan.depth < 0) {
+            return false;
+        }
+        if (!scan.array[scan.depth] && fieldNames.contains(scan.keys[scan.depth])) {
+            return true;
+        }
+        for (String[] path : fieldPaths) {
+            if (scan.isAt(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * State of one pass: the path to the current value is kept as a stack of containers.
+     */
+    private final class Scan {
+        private final String json;
+        private final int length;
+        private StringBuilder out;
+        private int copied;
+        private int depth = -1;
+        private boolean[] array = new boolean[8];
+        private boolean[] awaitingKey = new boolean[8];
+        private String[] keys = new String[8];
+        private int[] index = new int[8];
+        private boolean valueExpected;
+
+        private Scan(String json) {
+            this.json = json;
+            this.length = json.length();
+        }
+
+        private String run() {
+            int i = 0;
+            while (i < length) {
+                char c = json.charAt(i);
+                if (valueExpected && !Character.isWhitespace(c)) {
+                    valueExpected = false;
+                    if (c != ']' && c != '}' && isMasked(this)) {
+                        i = maskValue(i);
+                        continue;
+                    }
+                }
+                i = step(c, i);
+            }
+            return out == null ? json : out.append(json, copied, length).toString();
+        }
+
+        private int step(char c, int i) {
+            switch (c) {
+                case '{':
+                    push(false);
+                    return i + 1;
+                case '[':
+                    push(true);
+                    valueExpected = true;
+                    return i + 1;
+                case '}':
+                case ']':
+                    depth = Math.max(depth - 1, -1);
+                    return i + 1;
+                case ',':
+                    next();
+                    return i + 1;
+                case ':':
+                    valueExpected = depth >= 0;
+                    return i + 1;
+                case '"':
+                    return readString(i);
+                default:
+                    return i + 1;
+            }
+        }
+
+        private void push(boolean isArray) {
+            depth++;
+            if (depth == array.length) {
+                array = Arrays.copyOf(array, depth * 2);
+                awaitingKey = Arrays.copyOf(awaitingKey, depth * 2);
+                keys = Arrays.copyOf(keys, depth * 2);
+                index = Arrays.copyOf(index, depth * 2);
+            }
+            array[depth] = isArray;
+            awaitingKey[depth] = !isArray;
+            keys[depth] = null;
+            index[depth] = 0;
+        }
+
+        private void next() {
+            if (depth < 0) {
+                return;
+            }
+            if (array[depth]) {
+                index[depth]++;
+                valueExpected = true;
+            } else {
+                awaitingKey[depth] = true;
+            }
+        }
+
+        private int readString(int start) {
+            int end = endOfString(start);
+            if (depth >= 0 && awaitingKey[depth]) {
+                awaitingKey[depth] = false;
+                keys[depth] = decodeKey(start + 1, Math.max(end - 1, start + 1));
+            }
+            return end;
+        }
+
+        private int maskValue(int start) {
+            int end = endOfValue(start);
+            if (out == null) {
+                out = new StringBuilder(length);
+            }
+            out.append(json, copied, start).append(MASKED_VALUE);
+            copied = end;
+            return end;
+        }
+
+        private int endOfValue(int start) {
+            char c = json.charAt(start);
+            if (c == '"') {
+                return endOfString(start);
+            }
+            if (c == '{' || c == '[') {
+                return endOfContainer(start);
+            }
+            int i = start;
+            while (i < length && ",}] \t\r\n".indexOf(json.charAt(i)) < 0) {
+                i++;
+            }
+            return i;
+        }
+
+        private int endOfContainer(int start) {
+            int nesting = 0;
+            int i = start;
+            while (i < length) {
+                char c = json.charAt(i);
+                if (c == '"') {
+                    i = endOfString(i);
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    nesting++;
+                } else if ((c == '}' || c == ']') && --nesting == 0) {
+                    return i + 1;
+                }
+                i++;
+            }
+            return length;
+        }
+
+        private int endOfString(int start) {
+            int i = start + 1;
+            while (i < length) {
+                char c = json.charAt(i);
+                if (c == '"') {
+                    return i + 1;
+                }
+                i += c == '\\' ? 2 : 1;
+            }
+            return length;
+        }
+
+        private String decodeKey(int start, int end) {
+            String key = json.substring(start, end);
+            if (key.indexOf('\\') < 0) {
+                return key.toLowerCase(Locale.ROOT);
+            }
+            StringBuilder decoded = new StringBuilder(key.length());
+            int i = 0;
+            while (i < key.length()) {
+                char c = key.charAt(i);
+                if (c != '\\' || i + 1 == key.length()) {
+                    decoded.append(c);
+                    i++;
+                    continue;
+                }
+                i = decodeEscape(key, i + 1, decoded);
+            }
+            return decoded.toString().toLowerCase(Locale.ROOT);
+        }
+
+        private int decodeEscape(String key, int i, StringBuilder decoded) {
+            char c = key.charAt(i);
+            if (c == 'u' && i + 5 <= key.length()) {
+                try {
+                    decoded.append((char) Integer.parseInt(key.substring(i + 1, i + 5), 16));
+                    return i + 5;
+                } catch (NumberFormatException e) {
+                    decoded.append(c);
+                    return i + 1;
+                }
+            }
+            int simple = "bfnrt".indexOf(c);
+            decoded.append(simple < 0 ? c : "\b\f\n\r\t".charAt(simple));
+            return i + 1;
+        }
+
+        private boolean isAt(String[] path) {
+            if (path.length != depth + 1) {
+                return false;
+            }
+            for (int level = 0; level <= depth; level++) {
+                String segment = path[level];
+                boolean matches = "*".equals(segment) || (array[level] ? segment.equals(Integer.toString(index[level])) : segment.equals(keys[level]));
+                if (!matches) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
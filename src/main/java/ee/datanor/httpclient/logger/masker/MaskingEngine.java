@@ -0,0 +1,167 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.masker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+
+/**
+ * Applies a set of {@link BodyMasker}s. The groups matched by every masker are collected as ranges of the original body,
+ * overlapping ranges are merged and the output is built with one forward append, so a match of one masker cannot hide
+ * text from another and the result does not depend on the order of the maskers. {@link StructuredBodyMasker}s are
+ * applied before the patterns, and only to the media types they support.
+ */
+public final class MaskingEngine {
+    static final String MASK = "***";
+
+    private static final MaskingEngine EMPTY = new MaskingEngine(List.of(), List.of());
+
+    private final List<BodyMasker> maskers;
+    private final LongAdder[] hits;
+    private final List<StructuredBodyMasker> structured;
+    private final LongAdder[] structuredHits;
+
+    private MaskingEngine(List<BodyMasker> maskers, List<StructuredBodyMasker> structured) {
+        this.maskers = maskers;
+        this.structured = structured;
+        this.hits = newCounters(maskers.size());
+        this.structuredHits = newCounters(structured.size());
+    }
+
+    private static LongAdder[] newCounters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    public static MaskingEngine compile(Collection<BodyMasker> bodyMaskers) {
+        if (bodyMaskers == null || bodyMaskers.isEmpty()) {
+            return EMPTY;
+        }
+        List<StructuredBodyMasker> structured = new ArrayList<>();
+        List<BodyMasker> patterns = new ArrayList<>();
+        for (BodyMasker masker : bodyMaskers) {
+            if (masker instanceof StructuredBodyMasker) {
+                structured.add((StructuredBodyMasker) masker);
+            } else {
+                patterns.add(masker);
+            }
+        }
+        return new MaskingEngine(List.copyOf(patterns), List.copyOf(structured));
+    }
+
+    public String mask(String content) {
+        return mask(content, null);
+    }
+
+    /**
+     * Structured maskers are applied only when the mime type of the body is known and supported by them.
+     */
+    public String mask(String content, String mimeType) {
+        if (content == null) {
+            return null;
+        }
+        String result = content;
+        for (int i = 0; mimeType != null && i < structured.size(); i++) {
+            StructuredBodyMasker masker = structured.get(i);
+            String masked = masker.supports(mimeType) ? masker.mask(result) : result;
+            if (!masked.equals(result)) {
+                structuredHits[i].increment();
+                result = masked;
+            }
+        }
+        return maskPatterns(result);
+    }
+
+    private String maskPatterns(String content) {
+        long[] ranges = new long[0];
+        int count = 0;
+        for (int i = 0; i < maskers.size(); i++) {
+            Matcher matcher = maskers.get(i).getPattern().matcher(content);
+            while (matcher.find()) {
+                int masked = 0;
+                for (int g = 1; g <= matcher.groupCount(); g++) {
+                    if (matcher.start(g) < 0) {
+                        continue;
+                    }
+                    if (count == ranges.length) {
+                        ranges = Arrays.copyOf(ranges, Math.max(8, count * 2));
+                    }
+                    ranges[count++] = (long) matcher.start(g) << 32 | matcher.end(g);
+                    masked++;
+                }
+                if (masked > 0) {
+                    hits[i].increment();
+                }
+            }
+        }
+        return count == 0 ? content : applyRanges(content, ranges, count);
+    }
+
+    /**
+     * Replaces the ranges, start in the high and end in the low half of each value, with the mask. A range that
+     * overlaps the previous one extends it.
+     */
+    private static String applyRanges(String content, long[] ranges, int count) {
+        Arrays.sort(ranges, 0, count);
+        StringBuilder out = new StringBuilder(content.length());
+        int copied = 0;
+        for (int i = 0; i < count; i++) {
+            int start = (int) (ranges[i] >>> 32);
+            int end = (int) ranges[i];
+            if (start >= copied) {
+                out.append(content, copied, start).append(MASK);
+                copied = end;
+            } else if (end > copied) {
+                copied = end;
+            }
+        }
+        return out.append(content, copied, content.length()).toString();
+    }
+
+    /**
+     * Number of matches per masker that masked at least one group, for structured maskers the number of masked bodies.
+     */
+    public Map<BodyMasker, Long> getHitCounts() {
+        Map<BodyMasker, Long> hitCounts = new LinkedHashMap<>();
+        for (int i = 0; i < structured.size(); i++) {
+            hitCounts.put(structured.get(i), structuredHits[i].sum());
+        }
+        for (int i = 0; i < maskers.size(); i++) {
+            hitCounts.put(maskers.get(i), hits[i].sum());
+        }
+        return hitCounts;
+    }
+
+    public boolean isEmpty() {
+        return maskers.isEmpty() && structured.isEmpty();
+    }
+
+    public List<BodyMasker> getMaskers() {
+        List<BodyMasker> all = new ArrayList<>(structured);
+        all.addAll(maskers);
+        return all;
+    }
+}
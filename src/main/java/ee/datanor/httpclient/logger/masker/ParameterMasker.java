@@ -23,13 +23,29 @@ import java.util.regex.Pattern;
 @Slf4j
 public class ParameterMasker {
 
+    private static final Pattern REGEX_METACHARACTERS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    private final String parameter;
     private final Pattern paramPattern;
 
     public ParameterMasker(String parameter) {
-        String regexp = "((^|&)" + parameter + ")=[^&]+";
+        this.parameter = parameter;
+        String regexp = "((^|[?&])" + parameter + ")=[^&#]+";
         this.paramPattern = Pattern.compile(regexp, Pattern.CASE_INSENSITIVE);
     }
 
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * The parameter is a regular expression, e.g. {@code access_token|refresh_token} or {@code pass.*}, when it contains
+     * regex metacharacters.
+     */
+    public boolean isPattern() {
+        return REGEX_METACHARACTERS.matcher(parameter).find();
+    }
+
     public String mask(String content) {
         String response = content;
         response = paramPattern.matcher(response).replaceAll("$1=***");
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.masker;
+
+/**
+ * Masker that parses the body instead of matching a pattern, applied only to the media types it supports.
+ */
+public abstract class StructuredBodyMasker extends BodyMasker {
+
+    protected StructuredBodyMasker() {
+        super();
+    }
+
+    /**
+     * @param mimeType lower case mime type of the body, e.g. {@code application/json}
+     */
+    public abstract boolean supports(String mimeType);
+
+    /**
+     * Masks the body that may have been truncated at the logged length, returns the same instance when nothing is masked.
+     */
+    @Override
+    public abstract String mask(String content);
+}
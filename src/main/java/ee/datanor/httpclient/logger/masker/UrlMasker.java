@@ -0,0 +1,162 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.masker;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Masks query parameter values by name and path segments by position or pattern, in one pass over the URL.
+ * Parameter names are case-insensitive and percent-decoded before the lookup, name patterns have to match the whole
+ * name. Path segment positions start from 0
+ * after the authority, patterns have to match the whole segment. Scheme, authority and fragment are kept as they are.
+ */
+public class UrlMasker {
+    private final Set<String> parameterNames;
+    private final Pattern parameterNamePattern;
+    private final Set<Integer> pathSegmentPositions;
+    private final Pattern pathSegmentPattern;
+
+    public UrlMasker(Set<String> parameterNames) {
+        this(parameterNames, Set.of(), Set.of());
+    }
+
+    public UrlMasker(Set<String> parameterNames, Set<Integer> pathSegmentPositions, Set<String> pathSegmentPatterns) {
+        this(parameterNames, Set.of(), pathSegmentPositions, pathSegmentPatterns);
+    }
+
+    public UrlMasker(Set<String> parameterNames, Set<String> parameterNamePatterns, Set<Integer> pathSegmentPositions, Set<String> pathSegmentPatterns) {
+        this.parameterNames = parameterNames.stream().map(name -> name.toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+        this.parameterNamePattern = parameterNamePatterns.isEmpty() ? null : Pattern.compile(alternation(parameterNamePatterns), Pattern.CASE_INSENSITIVE);
+        this.pathSegmentPositions = Set.copyOf(pathSegmentPositions);
+        this.pathSegmentPattern = pathSegmentPatterns.isEmpty() ? null : Pattern.compile(alternation(pathSegmentPatterns));
+    }
+
+    private static String alternation(Set<String> patterns) {
+        return patterns.stream().map(pattern -> "(?:" + pattern + ")").collect(Collectors.joining("|"));
+    }
+
+    public String mask(String url) {
+        if (url == null) {
+            return null;
+        }
+        Scan scan = new Scan(url);
+        int pathStart = pathStart(url);
+        int queryStart = indexOf(url, '?', pathStart, url.length());
+        int fragmentStart = indexOf(url, '#', pathStart, url.length());
+        int pathEnd = Math.min(queryStart, fragmentStart);
+        if (!pathSegmentPositions.isEmpty() || pathSegmentPattern != null) {
+            maskPath(scan, pathStart, pathEnd);
+        }
+        if (queryStart < fragmentStart && (!parameterNames.isEmpty() || parameterNamePattern != null)) {
+            maskQuery(scan, queryStart + 1, fragmentStart);
+        }
+        return scan.result();
+    }
+
+    private static int pathStart(String url) {
+        int scheme = url.indexOf("://");
+        if (scheme < 0 || scheme > indexOf(url, '/', 0, url.length())) {
+            return 0;
+        }
+        int authorityEnd = scheme + 3;
+        while (authorityEnd < url.length() && "/?#".indexOf(url.charAt(authorityEnd)) < 0) {
+            authorityEnd++;
+        }
+        return authorityEnd;
+    }
+
+    private static int indexOf(String url, char c, int from, int end) {
+        int index = url.indexOf(c, from);
+        return index < 0 || index > end ? end : index;
+    }
+
+    private void maskPath(Scan scan, int start, int end) {
+        int segmentStart = start < end && scan.url.charAt(start) == '/' ? start + 1 : start;
+        int position = 0;
+        while (segmentStart <= end) {
+            int segmentEnd = indexOf(scan.url, '/', segmentStart, end);
+            if (segmentEnd > segmentStart && isMaskedSegment(scan.url.substring(segmentStart, segmentEnd), position)) {
+                scan.replace(segmentStart, segmentEnd);
+            }
+            position++;
+            segmentStart = segmentEnd + 1;
+        }
+    }
+
+    private boolean isMaskedSegment(String segment, int position) {
+        return pathSegmentPositions.contains(position) || pathSegmentPattern != null && pathSegmentPattern.matcher(segment).matches();
+    }
+
+    private void maskQuery(Scan scan, int start, int end) {
+        int parameterStart = start;
+        while (parameterStart < end) {
+            int parameterEnd = indexOf(scan.url, '&', parameterStart, end);
+            int valueStart = indexOf(scan.url, '=', parameterStart, parameterEnd) + 1;
+            if (valueStart < parameterEnd && isMaskedParameter(scan.url.substring(parameterStart, valueStart - 1))) {
+                scan.replace(valueStart, parameterEnd);
+            }
+            parameterStart = parameterEnd + 1;
+        }
+    }
+
+    private boolean isMaskedParameter(String name) {
+        String lowerCase = name.toLowerCase(Locale.ROOT);
+        if (isMaskedName(lowerCase)) {
+            return true;
+        }
+        return (lowerCase.indexOf('%') >= 0 || lowerCase.indexOf('+') >= 0) && isMaskedName(decode(lowerCase));
+    }
+
+    private boolean isMaskedName(String name) {
+        return parameterNames.contains(name) || parameterNamePattern != null && parameterNamePattern.matcher(name).matches();
+    }
+
+    private static String decode(String name) {
+        try {
+            return URLDecoder.decode(name, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return name;
+        }
+    }
+
+    private static final class Scan {
+        private final String url;
+        private StringBuilder out;
+        private int copied;
+
+        private Scan(String url) {
+            this.url = url;
+        }
+
+        private void replace(int start, int end) {
+            if (out == null) {
+                out = new StringBuilder(url.length());
+            }
+            out.append(url, copied, start).append(MaskingEngine.MASK);
+            copied = end;
+        }
+
+        private String result() {
+            return out == null ? url : out.append(url, copied, url.length()).toString();
+        }
+    }
+}
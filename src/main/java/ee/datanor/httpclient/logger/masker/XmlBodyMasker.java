@@ -0,0 +1,228 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.masker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Masks the content of XML elements and the values of attributes by local name, in one pass with a StAX pull parser.
+ * Names are case-insensitive and namespace prefixes are ignored. The original text is kept, only the masked ranges
+ * are replaced. A body cut off by the logged length limit is masked up to the point the parser could read it, the
+ * rest is masked as well when it mentions a masked name. DTDs and external entities are not processed. Should the parser
+ * not report a character offset, the rest of the body from that point on is masked.
+ */
+@Slf4j
+public class XmlBodyMasker extends StructuredBodyMasker {
+    private static final ThreadLocal<XMLInputFactory> FACTORY = ThreadLocal.withInitial(XmlBodyMasker::createFactory);
+
+    private final Set<String> elementNames;
+    private final Set<String> attributeNames;
+    private final int maxLength;
+
+    public XmlBodyMasker(Set<String> elementNames) {
+        this(elementNames, Set.of());
+    }
+
+    public XmlBodyMasker(Set<String> elementNames, Set<String> attributeNames) {
+        this(elementNames, attributeNames, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxLength parsing stops once this many characters are read, the rest of the body is replaced by the mask
+     */
+    public XmlBodyMasker(Set<String> elementNames, Set<String> attributeNames, int maxLength) {
+        super();
+        this.elementNames = toLowerCase(elementNames);
+        this.attributeNames = toLowerCase(attributeNames);
+        this.maxLength = maxLength;
+    }
+
+    private static Set<String> toLowerCase(Set<String> names) {
+        return names.stream().map(name -> name.toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static XMLInputFactory createFactory() {
+        // the JDK parser, which reports character offsets, rather than any StAX implementation on the classpath
+        XMLInputFactory factory = XMLInputFactory.newDefaultFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+
+    @Override
+    public boolean supports(String mimeType) {
+        return mimeType != null && mimeType.contains("xml");
+    }
+
+    @Override
+    public String mask(String content) {
+        if (content == null) {
+            return null;
+        }
+        Scan scan = new Scan(content);
+        try {
+            scan.run();
+        } catch (XMLStreamException e) {
+            // expected for a truncated body
+            log.trace("XML body parsed up to {} - {}", scan.parsed, e.getMessage());
+        }
+        return scan.result();
+    }
+
+    private final class Scan {
+        private final String xml;
+        private StringBuilder out;
+        private int copied;
+        private int parsed;
+        private int depth;
+        private int maskedDepth = -1;
+        private int contentStart;
+        private boolean complete;
+        private boolean offsetUnknown;
+
+        private Scan(String xml) {
+            this.xml = xml;
+        }
+
+        private void run() throws XMLStreamException {
+            XMLStreamReader reader = FACTORY.get().createXMLStreamReader(new StringReader(xml));
+            try {
+                while (reader.hasNext() && parsed < maxLength) {
+                    int event = reader.next();
+                    int offset = reader.getLocation().getCharacterOffset();
+                    if (event == XMLStreamConstants.END_DOCUMENT) {
+                        complete = true;
+                        return;
+                    }
+                    if (offset < 0) {
+                        offsetUnknown = true;
+                        return;
+                    }
+                    handle(reader, event, offset);
+                    parsed = offset;
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        private void handle(XMLStreamReader reader, int event, int offset) {
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (maskedDepth < 0) {
+                    startElement(reader, offset);
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == maskedDepth) {
+                    maskedDepth = -1;
+                    endMaskedElement(offset);
+                }
+                depth--;
+            }
+        }
+
+        private void startElement(XMLStreamReader reader, int offset) {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                if (attributeNames.contains(reader.getAttributeLocalName(i).toLowerCase(Locale.ROOT))) {
+                    maskAttributes(offset);
+                    break;
+                }
+            }
+            if (elementNames.contains(reader.getLocalName().toLowerCase(Locale.ROOT))) {
+                maskedDepth = depth;
+                contentStart = offset;
+            }
+        }
+
+        private void endMaskedElement(int offset) {
+            // an empty element ends where it starts
+            if (offset > contentStart) {
+                replace(contentStart, xml.lastIndexOf("</", offset - 1));
+            }
+        }
+
+        private void maskAttributes(int tagEnd) {
+            int i = skipName(xml.lastIndexOf('<', tagEnd - 1) + 1, tagEnd);
+            while (true) {
+                int nameStart = skipWhitespace(i, tagEnd);
+                int nameEnd = skipName(nameStart, tagEnd);
+                int quote = skipWhitespace(skipWhitespace(nameEnd, tagEnd) + 1, tagEnd);
+                if (nameEnd == nameStart || quote >= tagEnd) {
+                    return;
+                }
+                int valueEnd = xml.indexOf(xml.charAt(quote), quote + 1);
+                if (valueEnd < 0 || valueEnd >= tagEnd) {
+                    return;
+                }
+                String name = xml.substring(nameStart, nameEnd);
+                if (attributeNames.contains(name.substring(name.indexOf(':') + 1).toLowerCase(Locale.ROOT))) {
+                    replace(quote + 1, valueEnd);
+                }
+                i = valueEnd + 1;
+            }
+        }
+
+        private int skipName(int start, int end) {
+            int i = start;
+            while (i < end && "=/> \t\r\n".indexOf(xml.charAt(i)) < 0) {
+                i++;
+            }
+            return i;
+        }
+
+        private int skipWhitespace(int start, int end) {
+            int i = start;
+            while (i < end && Character.isWhitespace(xml.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        private void replace(int start, int end) {
+            if (out == null) {
+                out = new StringBuilder(xml.length());
+            }
+            out.append(xml, copied, start).append(MaskingEngine.MASK);
+            copied = end;
+        }
+
+        private String result() {
+            if (maskedDepth >= 0) {
+                replace(contentStart, xml.length());
+            } else if (!complete && parsed < xml.length() && (offsetUnknown || parsed >= maxLength || mentionsMaskedName(xml.substring(parsed)))) {
+                // the rest was not parsed, it is logged only when it cannot contain masked values
+                replace(parsed, xml.length());
+            }
+            return out == null ? xml : out.append(xml, copied, xml.length()).toString();
+        }
+
+        private boolean mentionsMaskedName(String rest) {
+            String lowerCase = rest.toLowerCase(Locale.ROOT);
+            return elementNames.stream().anyMatch(lowerCase::contains) || attributeNames.stream().anyMatch(lowerCase::contains);
+        }
+    }
+}
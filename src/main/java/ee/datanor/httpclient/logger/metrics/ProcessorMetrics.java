@@ -0,0 +1,98 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.metrics;
+
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Overhead of the log processors per processor class. Processing time is the time spent in the processor on the
+ * request thread, rendering time the time spent decoding and masking its captured bodies on the thread that writes the
+ * record. Both are measured with {@code System.nanoTime}, recording takes no lock and allocates nothing once the
+ * processor class is known.
+ */
+public final class ProcessorMetrics {
+    public static final String ATTRIBUTE = "httpclient-logger.processor-metrics";
+
+    private final Map<Class<?>, Counters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Metrics of the logger that handles the exchange, {@code null} when processors are not instrumented.
+     */
+    public static ProcessorMetrics find(HttpContext context) {
+        Object metrics = context == null ? null : context.getAttribute(ATTRIBUTE);
+        return metrics instanceof ProcessorMetrics ? (ProcessorMetrics) metrics : null;
+    }
+
+    public void recordProcessing(Class<?> processor, long nanos) {
+        counters(processor).processing.record(nanos);
+    }
+
+    /**
+     * @param capturedBytes bytes kept by the body capture
+     * @param decodedChars length of the decoded body
+     * @param maskedChars length of the body scanned by maskers, {@code 0} when the processor has none
+     */
+    public void recordRendering(Class<?> processor, long nanos, long capturedBytes, long decodedChars, long maskedChars) {
+        Counters processorCounters = counters(processor);
+        processorCounters.rendering.record(nanos);
+        processorCounters.capturedBytes.add(capturedBytes);
+        processorCounters.decodedChars.add(decodedChars);
+        processorCounters.maskedChars.add(maskedChars);
+    }
+
+    private Counters counters(Class<?> processor) {
+        Counters processorCounters = counters.get(processor);
+        return processorCounters != null ? processorCounters : counters.computeIfAbsent(processor, key -> new Counters());
+    }
+
+    public List<ProcessorSnapshot> snapshot() {
+        return snapshot(false);
+    }
+
+    public List<ProcessorSnapshot> snapshotAndReset() {
+        return snapshot(true);
+    }
+
+    private List<ProcessorSnapshot> snapshot(boolean reset) {
+        List<ProcessorSnapshot> snapshots = new ArrayList<>();
+        counters.forEach((processor, processorCounters) -> snapshots.add(processorCounters.snapshot(processor.getName(), reset)));
+        return snapshots;
+    }
+
+    private static final class Counters {
+        private final LatencyHistogram processing = new LatencyHistogram();
+        private final LatencyHistogram rendering = new LatencyHistogram();
+        private final LongAdder capturedBytes = new LongAdder();
+        private final LongAdder decodedChars = new LongAdder();
+        private final LongAdder maskedChars = new LongAdder();
+
+        private ProcessorSnapshot snapshot(String processor, boolean reset) {
+            if (reset) {
+                return new ProcessorSnapshot(processor, processing.snapshotAndReset(), rendering.snapshotAndReset(), capturedBytes.sumThenReset(),
+                        decodedChars.sumThenReset(), maskedChars.sumThenReset());
+            }
+            return new ProcessorSnapshot(processor, processing.snapshot(), rendering.snapshot(), capturedBytes.sum(), decodedChars.sum(),
+                    maskedChars.sum());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.metrics;
+
+/**
+ * Overhead of one processor class, durations are in nanoseconds.
+ */
+public final class ProcessorSnapshot {
+    private final String processor;
+    private final HistogramSnapshot processing;
+    private final HistogramSnapshot rendering;
+    private final long capturedBytes;
+    private final long decodedChars;
+    private final long maskedChars;
+
+    ProcessorSnapshot(String processor, HistogramSnapshot processing, HistogramSnapshot rendering, long capturedBytes, long decodedChars,
+                      long maskedChars) {
+        this.processor = processor;
+        this.processing = processing;
+        this.rendering = rendering;
+        this.capturedBytes = capturedBytes;
+        this.decodedChars = decodedChars;
+        this.maskedChars = maskedChars;
+    }
+
+    /**
+     * Class name of the processor.
+     */
+    public String getProcessor() {
+        return processor;
+    }
+
+    public HistogramSnapshot getProcessing() {
+        return processing;
+    }
+
+    /**
+     * Decoding and masking of captured bodies, empty for processors that do not capture bodies.
+     */
+    public HistogramSnapshot getRendering() {
+        return rendering;
+    }
+
+    public long getCapturedBytes() {
+        return capturedBytes;
+    }
+
+    public long getDecodedChars() {
+        return decodedChars;
+    }
+
+    public long getMaskedChars() {
+        return maskedChars;
+    }
+
+    @Override
+    public String toString() {
+        return processor + " processing count=" + processing.getCount() + " total=" + processing.getSum() + " p99=" + processing.getValueAtPercentile(99)
+                + " rendering count=" + rendering.getCount() + " total=" + rendering.getSum() + " p99=" + rendering.getValueAtPercentile(99)
+                + " captured=" + capturedBytes + " decoded=" + decodedChars + " masked=" + maskedChars;
+    }
+}
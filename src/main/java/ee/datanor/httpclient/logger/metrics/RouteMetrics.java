@@ -0,0 +1,98 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.metrics;
+
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Latency histograms per target host, method, route template and status class. Recording looks the histogram up in
+ * nested maps by the values it is given, nothing is allocated once the histogram exists.
+ */
+public final class RouteMetrics {
+    public static final String ANY_ROUTE = "*";
+    /**
+     * Status class of exchanges that failed without a response.
+     */
+    public static final int FAILED = 0;
+
+    private static final int STATUS_CLASSES = 6;
+
+    private final Function<HttpRequest, String> routeTemplate;
+    private final Map<HttpHost, Map<String, Map<String, AtomicReferenceArray<LatencyHistogram>>>> histograms = new ConcurrentHashMap<>();
+
+    public RouteMetrics() {
+        this(request -> ANY_ROUTE);
+    }
+
+    /**
+     * @param routeTemplate maps a request to a route template of bounded cardinality, e.g. {@code /customers/{id}}
+     */
+    public RouteMetrics(Function<HttpRequest, String> routeTemplate) {
+        this.routeTemplate = routeTemplate;
+    }
+
+    public String getRouteTemplate(HttpRequest request) {
+        return routeTemplate.apply(request);
+    }
+
+    /**
+     * @param status response status, or {@link #FAILED}
+     */
+    public void record(HttpHost host, String method, String route, int status, long durationNanos) {
+        int statusClass = Math.min(Math.max(status / 100, FAILED), STATUS_CLASSES - 1);
+        AtomicReferenceArray<LatencyHistogram> byStatusClass = histograms
+                .computeIfAbsent(host, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(route, key -> new AtomicReferenceArray<>(STATUS_CLASSES));
+        LatencyHistogram histogram = byStatusClass.get(statusClass);
+        if (histogram == null) {
+            byStatusClass.compareAndSet(statusClass, null, new LatencyHistogram());
+            histogram = byStatusClass.get(statusClass);
+        }
+        histogram.record(durationNanos);
+    }
+
+    public List<RouteSnapshot> snapshot() {
+        return snapshot(false);
+    }
+
+    public List<RouteSnapshot> snapshotAndReset() {
+        return snapshot(true);
+    }
+
+    private List<RouteSnapshot> snapshot(boolean reset) {
+        List<RouteSnapshot> snapshots = new ArrayList<>();
+        histograms.forEach((host, byMethod) -> byMethod.forEach((method, byRoute) -> byRoute.forEach((route, byStatusClass) -> {
+            for (int statusClass = 0; statusClass < STATUS_CLASSES; statusClass++) {
+                LatencyHistogram histogram = byStatusClass.get(statusClass);
+                if (histogram != null) {
+                    HistogramSnapshot snapshot = reset ? histogram.snapshotAndReset() : histogram.snapshot();
+                    snapshots.add(new RouteSnapshot(host.toURI(), method, route, statusClass, snapshot));
+                }
+            }
+        })));
+        return snapshots;
+    }
+}
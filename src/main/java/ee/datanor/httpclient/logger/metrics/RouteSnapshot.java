@@ -0,0 +1,65 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.metrics;
+
+/**
+ * Histogram snapshot of one target host, method, route template and status class.
+ */
+public final class RouteSnapshot {
+    private final String host;
+    private final String method;
+    private final String route;
+    private final int statusClass;
+    private final HistogramSnapshot histogram;
+
+    RouteSnapshot(String host, String method, String route, int statusClass, HistogramSnapshot histogram) {
+        this.host = host;
+        this.method = method;
+        this.route = route;
+        this.statusClass = statusClass;
+        this.histogram = histogram;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * First digit of the status, {@link RouteMetrics#FAILED} for exchanges without a response.
+     */
+    public int getStatusClass() {
+        return statusClass;
+    }
+
+    public HistogramSnapshot getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + host + route + " " + statusClass + "xx count=" + histogram.getCount() + " p50=" + histogram.getValueAtPercentile(50)
+                + " p99=" + histogram.getValueAtPercentile(99) + " max=" + histogram.getMax();
+    }
+}
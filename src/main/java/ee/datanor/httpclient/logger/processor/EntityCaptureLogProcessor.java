@@ -0,0 +1,35 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.processor;
+
+import ee.datanor.httpclient.logger.capture.EntityCapture;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpMessage;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * Processor that logs a body which is not available as {@code HttpEntity} but streamed to it chunk by chunk.
+ */
+public interface EntityCaptureLogProcessor extends LogProcessor {
+
+    /**
+     * Returns the capture to feed the body into, or {@code null} when the body is not logged. The record of the
+     * message is held back until the capture is completed.
+     */
+    EntityCapture captureEntity(HttpMessage message, EntityDetails entityDetails, HttpContext context);
+
+}
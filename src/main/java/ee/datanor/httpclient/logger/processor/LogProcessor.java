@@ -16,24 +16,64 @@
 
 package ee.datanor.httpclient.logger.processor;
 
+import ee.datanor.httpclient.logger.capture.BodyCapture;
+import ee.datanor.httpclient.logger.capture.ContentDecoder;
+import ee.datanor.httpclient.logger.capture.ContentDecoderRegistry;
+import ee.datanor.httpclient.logger.event.LazyValue;
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
 import ee.datanor.httpclient.logger.masker.BodyMasker;
+import ee.datanor.httpclient.logger.masker.MaskingEngine;
+import ee.datanor.httpclient.logger.metrics.ProcessorMetrics;
+import ee.datanor.httpclient.logger.store.BodyStore;
 import ee.datanor.httpclient.logger.util.EscapeUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
 import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.protocol.HttpContext;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.Locale;
 import java.util.Set;
 
 public interface LogProcessor {
     String EMPTY_REPLACEMENT = "-";
 
+    /**
+     * Writes the value into the exchange's {@link LogEvent}, or into MDC when there is none.
+     */
+    default void setValue(HttpContext context, LogField field, Object value) {
+        setValue(LogEvent.find(context), field, value);
+    }
+
+    default void setValue(HttpContext context, String key, Object value) {
+        LogEvent event = LogEvent.find(context);
+        if (event == null) {
+            setMDCValue(key, value);
+        } else {
+            event.set(key, value);
+        }
+    }
+
+    default void setValue(LogEvent event, LogField field, Object value) {
+        if (event == null) {
+            setMDCValue(field.getKey(), value);
+        } else {
+            event.set(field, value);
+        }
+    }
+
     default void setMDCValue(String attribute, Object value) {
-        MDC.put(attribute, EscapeUtil.escape(replaceEmpty(value)));
+        MDC.put(attribute, toMDCValue(value));
+    }
+
+    default String toMDCValue(Object value) {
+        return EscapeUtil.escape(replaceEmpty(value));
     }
 
     default String replaceEmpty(Object value) {
@@ -41,8 +81,8 @@ public interface LogProcessor {
         return StringUtils.firstNonBlank(parsedValue, EMPTY_REPLACEMENT);
     }
 
-    default Charset getCharset(HttpEntity httpEntity) {
-        ContentType contentType = ContentType.parseLenient(httpEntity.getContentType());
+    default Charset getCharset(EntityDetails entityDetails) {
+        ContentType contentType = ContentType.parseLenient(entityDetails.getContentType());
         if (contentType == null) {
             return Charset.defaultCharset();
         }
@@ -50,6 +90,11 @@ public interface LogProcessor {
         return charset == null ? Charset.defaultCharset() : charset;
     }
 
+    default String getMimeType(EntityDetails entityDetails) {
+        ContentType contentType = ContentType.parseLenient(entityDetails.getContentType());
+        return contentType == null ? null : contentType.getMimeType().toLowerCase(Locale.ROOT);
+    }
+
     default ByteArrayOutputStream getEntityStream(HttpEntity httpEntity) {
         try {
             ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -61,14 +106,60 @@ public interface LogProcessor {
         }
     }
 
-    default String maskSensitivePatterns(Set<BodyMasker> maskers, String content) {
-        if (content == null) {
+    default BodyCapture createBodyCapture(EntityDetails entityDetails, int limit, ContentDecoderRegistry contentDecoders) {
+        String contentEncoding = entityDetails.getContentEncoding();
+        if (contentDecoders.isIdentity(contentEncoding)) {
+            return new BodyCapture(limit);
+        }
+        ContentDecoder decoder = contentDecoders.create(contentEncoding);
+        if (decoder == null) {
+            LoggerFactory.getLogger(getClass().getName()).debug("Body with unsupported content encoding {} is not logged", contentEncoding);
             return null;
         }
-        String result = content;
-        for (BodyMasker masker : maskers) {
-            result = masker.mask(result);
+        return new BodyCapture(limit, decoder);
+    }
+
+    /**
+     * Decoding and masking of the captured body are left to the thread that renders the record.
+     */
+    default LazyValue renderLater(BodyCapture capture, EntityDetails entityDetails, MaskingEngine maskingEngine) {
+        return renderLater(capture, entityDetails, maskingEngine, null);
+    }
+
+    /**
+     * With processor metrics the rendering time and the captured, decoded and masked lengths are recorded for the
+     * processor class.
+     */
+    default LazyValue renderLater(BodyCapture capture, EntityDetails entityDetails, MaskingEngine maskingEngine, ProcessorMetrics metrics) {
+        Charset charset = getCharset(entityDetails);
+        String mimeType = getMimeType(entityDetails);
+        if (metrics == null) {
+            return LazyValue.of(() -> maskingEngine.mask(capture.decode(charset), mimeType));
+        }
+        Class<?> processor = getClass();
+        return LazyValue.of(() -> {
+            long start = System.nanoTime();
+            String decoded = capture.decode(charset);
+            String masked = maskingEngine.mask(decoded, mimeType);
+            long decodedChars = decoded == null ? 0 : decoded.length();
+            metrics.recordRendering(processor, System.nanoTime() - start, capture.size(), decodedChars, maskingEngine.isEmpty() ? 0 : decodedChars);
+            return masked;
+        });
+    }
+
+    /**
+     * With a body store the value is the reference to the body in the store, the body is rendered only when the store
+     * does not have it yet.
+     */
+    default LazyValue renderLater(BodyCapture capture, EntityDetails entityDetails, MaskingEngine maskingEngine, ProcessorMetrics metrics, BodyStore bodyStore) {
+        LazyValue body = renderLater(capture, entityDetails, maskingEngine, metrics);
+        if (bodyStore == null) {
+            return body;
         }
-        return result;
+        return LazyValue.of(() -> capture.size() == 0 ? body.get() : bodyStore.store(capture.hash(), capture.size(), body::toString));
+    }
+
+    default String maskSensitivePatterns(Set<BodyMasker> maskers, String content) {
+        return MaskingEngine.compile(maskers).mask(content);
     }
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.processor;
+
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * Request processor that also changes the outgoing request, e.g. to propagate a correlation ID. Unlike logging, this
+ * must not depend on sampling, so {@link #prepare(HttpRequest, HttpContext)} is called for every exchange before the
+ * sampling decision.
+ */
+public interface OutboundRequestProcessor extends RequestLogProcessor {
+
+    void prepare(HttpRequest httpRequest, HttpContext httpContext);
+
+}
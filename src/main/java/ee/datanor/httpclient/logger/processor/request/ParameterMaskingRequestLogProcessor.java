@@ -17,24 +17,31 @@
 package ee.datanor.httpclient.logger.processor.request;
 
 import ee.datanor.httpclient.logger.masker.ParameterMasker;
+import ee.datanor.httpclient.logger.masker.UrlMasker;
 import ee.datanor.httpclient.logger.processor.RequestLogProcessor;
-import lombok.RequiredArgsConstructor;
 
 import java.util.Set;
+import java.util.stream.Collectors;
 
-@RequiredArgsConstructor
 public abstract class ParameterMaskingRequestLogProcessor implements RequestLogProcessor {
-    private final Set<ParameterMasker> maskers;
+    private final UrlMasker urlMasker;
+
+    /**
+     * Parameters with regex metacharacters are matched as patterns against the whole parameter name.
+     */
+    protected ParameterMaskingRequestLogProcessor(Set<ParameterMasker> maskers) {
+        this(new UrlMasker(parameters(maskers, false), parameters(maskers, true), Set.of(), Set.of()));
+    }
+
+    protected ParameterMaskingRequestLogProcessor(UrlMasker urlMasker) {
+        this.urlMasker = urlMasker;
+    }
+
+    private static Set<String> parameters(Set<ParameterMasker> maskers, boolean patterns) {
+        return maskers.stream().filter(masker -> masker.isPattern() == patterns).map(ParameterMasker::getParameter).collect(Collectors.toSet());
+    }
 
     protected String maskSensitiveParameters(String content) {
-        if (content == null) {
-            return null;
-        }
-        String response = content;
-        for (ParameterMasker masker : maskers) {
-            response = masker.mask(content);
-        }
-
-        return response;
+        return urlMasker.mask(content);
     }
 }
@@ -16,82 +16,151 @@
 
 package ee.datanor.httpclient.logger.processor.request;
 
+import ee.datanor.httpclient.logger.capture.BodyCapture;
+import ee.datanor.httpclient.logger.capture.CapturingHttpEntity;
+import ee.datanor.httpclient.logger.capture.ContentDecoderRegistry;
+import ee.datanor.httpclient.logger.capture.DeferredLog;
+import ee.datanor.httpclient.logger.capture.EntityCapture;
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
 import ee.datanor.httpclient.logger.masker.BodyMasker;
+import ee.datanor.httpclient.logger.masker.MaskingEngine;
+import ee.datanor.httpclient.logger.metrics.ProcessorMetrics;
+import ee.datanor.httpclient.logger.processor.EntityCaptureLogProcessor;
 import ee.datanor.httpclient.logger.processor.LogProcessor;
 import ee.datanor.httpclient.logger.processor.RequestLogProcessor;
+import ee.datanor.httpclient.logger.store.BodyStore;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpEntityContainer;
+import org.apache.hc.core5.http.HttpMessage;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.protocol.HttpContext;
 
-import java.nio.charset.Charset;
 import java.util.Set;
 
 @Slf4j
-public class RequestBodyLogProcessor implements RequestLogProcessor {
-    public static final String MDC_KEY = "HC_REQUEST_BODY";
+public class RequestBodyLogProcessor implements RequestLogProcessor, EntityCaptureLogProcessor {
+    public static final String MDC_KEY = LogField.REQUEST_BODY.getKey();
 
     private final int maxLoggedRequestLength;
     private final Set<String> includedRequestBodyMediaSubtypes;
-    private final Set<BodyMasker> sensitiveBodyMaskers;
+    private final MaskingEngine maskingEngine;
+    private final ContentDecoderRegistry contentDecoders;
+    private final BodyStore bodyStore;
 
     public RequestBodyLogProcessor(int maxLoggedRequestLength, Set<BodyMasker> sensitiveBodyMaskers) {
         this(maxLoggedRequestLength, sensitiveBodyMaskers, Set.of("json", "xml"));
     }
 
     public RequestBodyLogProcessor(int maxLoggedRequestLength, Set<BodyMasker> sensitiveBodyMaskers, Set<String> includedResponseBodyMediaSubtypes) {
+        this(maxLoggedRequestLength, sensitiveBodyMaskers, includedResponseBodyMediaSubtypes, ContentDecoderRegistry.defaults());
+    }
+
+    public RequestBodyLogProcessor(int maxLoggedRequestLength, Set<BodyMasker> sensitiveBodyMaskers, Set<String> includedResponseBodyMediaSubtypes,
+                                   ContentDecoderRegistry contentDecoders) {
+        this(maxLoggedRequestLength, sensitiveBodyMaskers, includedResponseBodyMediaSubtypes, contentDecoders, null);
+    }
+
+    /**
+     * With a body store the record carries a reference to the body, each distinct body is stored once.
+     */
+    public RequestBodyLogProcessor(int maxLoggedRequestLength, Set<BodyMasker> sensitiveBodyMaskers, Set<String> includedResponseBodyMediaSubtypes,
+                                   ContentDecoderRegistry contentDecoders, BodyStore bodyStore) {
         this.maxLoggedRequestLength = maxLoggedRequestLength;
         this.includedRequestBodyMediaSubtypes = includedResponseBodyMediaSubtypes;
-        this.sensitiveBodyMaskers = sensitiveBodyMaskers;
+        this.maskingEngine = MaskingEngine.compile(sensitiveBodyMaskers);
+        this.contentDecoders = contentDecoders;
+        this.bodyStore = bodyStore;
     }
 
     @Override
     public void process(HttpRequest httpRequest, HttpContext context) {
         if (!requestBodyMediaSubtypeMatches(httpRequest)) {
-            setMDCValue(MDC_KEY, LogProcessor.EMPTY_REPLACEMENT);
+            setValue(context, LogField.REQUEST_BODY, LogProcessor.EMPTY_REPLACEMENT);
             return;
         }
-        String requestBody = replaceEmpty(getRequestBody(httpRequest));
-        if (requestBody.length() > maxLoggedRequestLength) {
-            setMDCValue(MDC_KEY, requestBody.substring(0, maxLoggedRequestLength));
+        HttpEntity httpEntity = getEntity(httpRequest);
+        BodyCapture capture = httpEntity == null ? null : createBodyCapture(httpEntity, maxLoggedRequestLength, contentDecoders);
+        if (capture == null) {
+            setValue(context, LogField.REQUEST_BODY, LogProcessor.EMPTY_REPLACEMENT);
+            return;
+        }
+        if (httpEntity.isRepeatable() && !httpEntity.isStreaming()) {
+            setValue(context, LogField.REQUEST_BODY, getRequestBody(httpEntity, capture, ProcessorMetrics.find(context)));
+        } else if (context != null) {
+            captureWhileWritten((HttpEntityContainer) httpRequest, httpEntity, capture, context);
         } else {
-            setMDCValue(MDC_KEY, requestBody);
+            setValue(context, LogField.REQUEST_BODY, LogProcessor.EMPTY_REPLACEMENT);
+        }
+    }
+
+    @Override
+    public EntityCapture captureEntity(HttpMessage message, EntityDetails entityDetails, HttpContext context) {
+        if (entityDetails == null || context == null || !mediaSubtypeMatches(getMediaType(message, entityDetails))) {
+            return null;
+        }
+        BodyCapture capture = createBodyCapture(entityDetails, maxLoggedRequestLength, contentDecoders);
+        if (capture == null) {
+            return null;
         }
+        return new EntityCapture(capture, registerDeferredBody(capture, entityDetails, context)::complete);
     }
 
-    private String getRequestBody(HttpRequest request) {
+    private HttpEntity getEntity(HttpRequest request) {
         if (HttpEntityContainer.class.isAssignableFrom(request.getClass())) {
-            HttpEntityContainer entityContainer = (HttpEntityContainer) request;
-            if (entityContainer.getEntity() == null) {
-                return null;
-            }
-            Charset charset = getCharset(entityContainer.getEntity());
-            try {
-                HttpEntity httpEntity = entityContainer.getEntity();
-                if (httpEntity.isRepeatable()) {
-                    String body = getEntityStream(((HttpEntityContainer) request).getEntity()).toString(charset);
-                    return maskSensitivePatterns(sensitiveBodyMaskers, body);
-                }
-                return "";
-            } catch (Exception e) {
-                log.warn("Failed to parse httpclient request - " + e.getMessage(), e);
-                return "";
-            }
+            return ((HttpEntityContainer) request).getEntity();
         }
         return null;
     }
 
+    private Object getRequestBody(HttpEntity httpEntity, BodyCapture capture, ProcessorMetrics metrics) {
+        try {
+            capture.captureFrom(httpEntity);
+            capture.finish();
+            return renderLater(capture, httpEntity, maskingEngine, metrics, bodyStore);
+        } catch (Exception e) {
+            log.warn("Failed to parse httpclient request - " + e.getMessage(), e);
+            return "";
+        }
+    }
+
+    private void captureWhileWritten(HttpEntityContainer entityContainer, HttpEntity httpEntity, BodyCapture capture, HttpContext context) {
+        // body is captured while the client writes it to the connection, the request record waits for it
+        DeferredLog.Part part = registerDeferredBody(capture, httpEntity, context);
+        entityContainer.setEntity(new CapturingHttpEntity(httpEntity, capture, part::complete));
+        setValue(context, LogField.REQUEST_BODY, LogProcessor.EMPTY_REPLACEMENT);
+    }
+
+    private DeferredLog.Part registerDeferredBody(BodyCapture capture, EntityDetails entityDetails, HttpContext context) {
+        LogEvent event = LogEvent.find(context);
+        ProcessorMetrics metrics = ProcessorMetrics.find(context);
+        return DeferredLog.get(context, DeferredLog.REQUEST_ATTRIBUTE).register(() -> {
+            capture.finish();
+            setValue(event, LogField.REQUEST_BODY, renderLater(capture, entityDetails, maskingEngine, metrics, bodyStore));
+        });
+    }
+
     private boolean requestBodyMediaSubtypeMatches(HttpRequest httpRequest) {
+        Header contentType = httpRequest.getFirstHeader("Content-Type");
+        return contentType != null && mediaSubtypeMatches(contentType.getValue());
+    }
+
+    private String getMediaType(HttpMessage message, EntityDetails entityDetails) {
+        Header contentType = message.getFirstHeader("Content-Type");
+        return contentType != null ? contentType.getValue() : entityDetails.getContentType();
+    }
+
+    private boolean mediaSubtypeMatches(String mediaType) {
         try {
-            String mediaType = httpRequest.getHeader("Content-Type").getValue();
-            ContentType contentType = ContentType.parseLenient(mediaType);
-            String mimeType = contentType.getMimeType();
             if (StringUtils.isEmpty(mediaType)) {
                 return false;
             }
+            String mimeType = ContentType.parseLenient(mediaType).getMimeType();
             return includedRequestBodyMediaSubtypes.stream()
                     .map(String::toLowerCase)
                     .anyMatch(mimeType::contains);
@@ -99,4 +168,11 @@ public class RequestBodyLogProcessor implements RequestLogProcessor {
             return false;
         }
     }
+
+    /**
+     * Engine the body maskers were compiled into, for its per-masker hit counts.
+     */
+    public MaskingEngine getMaskingEngine() {
+        return maskingEngine;
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.processor.request;
+
+import ee.datanor.httpclient.logger.correlation.CorrelationIdGenerator;
+import ee.datanor.httpclient.logger.correlation.Traceparent;
+import ee.datanor.httpclient.logger.event.LogField;
+import ee.datanor.httpclient.logger.processor.OutboundRequestProcessor;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.slf4j.MDC;
+
+/**
+ * Logs a correlation ID as {@code HC_REQUEST_HASH}, in place of {@link RequestHashLogProcessor}. The ID is taken from
+ * the outbound header when the caller set it, then from the inbound ID in MDC, otherwise a time-ordered one is
+ * generated. It can be sent along as a header, or as the trace id of a W3C {@code traceparent}, so that the records can
+ * be joined with the ones of the callee. The header is set for every exchange, sampled or not.
+ */
+public class RequestCorrelationIdLogProcessor implements OutboundRequestProcessor {
+    public static final String MDC_KEY = LogField.REQUEST_HASH.getKey();
+    public static final String CORRELATION_ID_HEADER = "X-Correlation-ID";
+    public static final String CORRELATION_ID_ATTRIBUTE = "httpclient-logger.correlation-id";
+
+    public enum Propagation {
+        NONE,
+        /**
+         * The ID is sent as {@code X-Correlation-ID}.
+         */
+        HEADER,
+        /**
+         * The ID is a W3C trace id, sent in a {@code traceparent} with a new parent id.
+         */
+        TRACEPARENT
+    }
+
+    private final CorrelationIdGenerator generator;
+    private final String inboundMdcKey;
+    private final Propagation propagation;
+
+    public RequestCorrelationIdLogProcessor() {
+        this(null, Propagation.NONE);
+    }
+
+    /**
+     * @param inboundMdcKey MDC key of the ID of the exchange being served, e.g. {@code traceparent}, {@code null} to always generate
+     */
+    public RequestCorrelationIdLogProcessor(String inboundMdcKey, Propagation propagation) {
+        this(CorrelationIdGenerator.getDefault(), inboundMdcKey, propagation);
+    }
+
+    public RequestCorrelationIdLogProcessor(CorrelationIdGenerator generator, String inboundMdcKey, Propagation propagation) {
+        this.generator = generator;
+        this.inboundMdcKey = inboundMdcKey;
+        this.propagation = propagation;
+    }
+
+    @Override
+    public void prepare(HttpRequest httpRequest, HttpContext httpContext) {
+        String correlationId = propagate(httpRequest);
+        if (httpContext != null) {
+            httpContext.setAttribute(CORRELATION_ID_ATTRIBUTE, correlationId);
+        }
+    }
+
+    @Override
+    public void process(HttpRequest httpRequest, HttpContext httpContext) {
+        Object correlationId = httpContext == null ? null : httpContext.removeAttribute(CORRELATION_ID_ATTRIBUTE);
+        setValue(httpContext, LogField.REQUEST_HASH, correlationId instanceof String id ? id : propagate(httpRequest));
+    }
+
+    private String propagate(HttpRequest request) {
+        return propagation == Propagation.TRACEPARENT ? propagateTraceparent(request) : propagateHeader(request);
+    }
+
+    private String propagateHeader(HttpRequest request) {
+        Header header = propagation == Propagation.HEADER ? request.getFirstHeader(CORRELATION_ID_HEADER) : null;
+        if (header != null && StringUtils.isNotBlank(header.getValue())) {
+            return header.getValue();
+        }
+        String correlationId = inboundMdcKey == null ? null : MDC.get(inboundMdcKey);
+        if (StringUtils.isBlank(correlationId)) {
+            correlationId = generator.next();
+        }
+        if (propagation == Propagation.HEADER) {
+            request.setHeader(CORRELATION_ID_HEADER, correlationId);
+        }
+        return correlationId;
+    }
+
+    private String propagateTraceparent(HttpRequest request) {
+        Header header = request.getFirstHeader(Traceparent.HEADER);
+        String traceId = header == null ? null : Traceparent.parseTraceId(header.getValue());
+        if (traceId != null) {
+            return traceId;
+        }
+        traceId = inboundMdcKey == null ? null : Traceparent.parseTraceId(MDC.get(inboundMdcKey));
+        if (traceId == null) {
+            traceId = Traceparent.newTraceId(generator);
+        }
+        request.setHeader(Traceparent.HEADER, Traceparent.format(traceId, Traceparent.newParentId()));
+        return traceId;
+    }
+}
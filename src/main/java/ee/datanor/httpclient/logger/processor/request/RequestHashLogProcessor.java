@@ -16,13 +16,14 @@
 
 package ee.datanor.httpclient.logger.processor.request;
 
+import ee.datanor.httpclient.logger.event.LogField;
 import ee.datanor.httpclient.logger.processor.RequestLogProcessor;
 import ee.datanor.httpclient.logger.util.HashUtil;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.protocol.HttpContext;
 
 public class RequestHashLogProcessor implements RequestLogProcessor {
-    public static final String MDC_KEY = "HC_REQUEST_HASH";
+    public static final String MDC_KEY = LogField.REQUEST_HASH.getKey();
     public static final int DEFAULT_HASH_LENGTH = 8;
 
     private int hashLength;
@@ -37,6 +38,6 @@ public class RequestHashLogProcessor implements RequestLogProcessor {
 
     @Override
     public void process(HttpRequest httpRequest, HttpContext httpContext) {
-        setMDCValue(MDC_KEY, HashUtil.generateHash(hashLength));
+        setValue(httpContext, LogField.REQUEST_HASH, HashUtil.generateHash(hashLength));
     }
 }
@@ -16,8 +16,11 @@
 
 package ee.datanor.httpclient.logger.processor.request;
 
+import ee.datanor.httpclient.logger.event.LazyValue;
+import ee.datanor.httpclient.logger.event.LogField;
 import ee.datanor.httpclient.logger.processor.RequestLogProcessor;
-import ee.datanor.httpclient.logger.util.HeaderUtil;
+import ee.datanor.httpclient.logger.util.HeaderSelector;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.protocol.HttpContext;
 
@@ -25,24 +28,28 @@ import java.util.Set;
 
 
 public class RequestHeadersLogProcessor implements RequestLogProcessor {
-    public static final String MDC_KEY = "HC_REQUEST_HEADERS";
+    public static final String MDC_KEY = LogField.REQUEST_HEADERS.getKey();
 
-    private final Set<String> includedRequestHeaders;
+    private final HeaderSelector headerSelector;
 
     public RequestHeadersLogProcessor() {
         this(Set.of("user-agent", "content-type", "accept"));
     }
 
     public RequestHeadersLogProcessor(Set<String> includedRequestHeaders) {
-        this.includedRequestHeaders = includedRequestHeaders;
+        this(HeaderSelector.of(includedRequestHeaders));
     }
 
-    @Override
-    public void process(HttpRequest httpRequest, HttpContext httpContext) {
-        setMDCValue(MDC_KEY, replaceEmpty(getRequestHeaders(httpRequest)));
+    /**
+     * The selector decides which headers are logged and how their values are masked.
+     */
+    public RequestHeadersLogProcessor(HeaderSelector headerSelector) {
+        this.headerSelector = headerSelector;
     }
 
-    private String getRequestHeaders(HttpRequest httpRequest) {
-        return HeaderUtil.headersToString(httpRequest.getHeaders(), includedRequestHeaders);
+    @Override
+    public void process(HttpRequest httpRequest, HttpContext httpContext) {
+        Header[] headers = httpRequest.getHeaders();
+        setValue(httpContext, LogField.REQUEST_HEADERS, LazyValue.of(() -> headerSelector.select(headers)));
     }
 }
@@ -16,9 +16,11 @@
 
 package ee.datanor.httpclient.logger.processor.request;
 
+import ee.datanor.httpclient.logger.event.LogField;
 import ee.datanor.httpclient.logger.masker.ParameterMasker;
-import org.apache.hc.client5.http.RouteInfo;
-import org.apache.hc.client5.http.protocol.HttpClientContext;
+import ee.datanor.httpclient.logger.masker.UrlMasker;
+import ee.datanor.httpclient.logger.util.RouteUtil;
+import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.protocol.HttpContext;
 
@@ -26,7 +28,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 public class RequestLineLogProcessor extends ParameterMaskingRequestLogProcessor {
-    public static final String MDC_KEY = "HC_REQUEST_LINE";
+    public static final String MDC_KEY = LogField.REQUEST_LINE.getKey();
 
     public RequestLineLogProcessor() {
         this(new HashSet<>());
@@ -36,32 +38,29 @@ public class RequestLineLogProcessor extends ParameterMaskingRequestLogProcessor
         super(maskers);
     }
 
+    public RequestLineLogProcessor(UrlMasker urlMasker) {
+        super(urlMasker);
+    }
+
     @Override
     public void process(HttpRequest httpRequest, HttpContext context) {
-        setMDCValue(MDC_KEY, replaceEmpty(getRequestLine(httpRequest, context)));
+        setValue(context, LogField.REQUEST_LINE, getRequestLine(httpRequest, context));
     }
 
     private String getRequestLine(HttpRequest request, HttpContext context) {
         String httpHost = getHttpHost(context);
         String uri = request.getRequestUri();
-        if (httpHost != null && uri.startsWith(httpHost)) {
-            uri = uri.replaceFirst(httpHost, "");
+        String url;
+        if (httpHost == null || uri.startsWith(httpHost)) {
+            url = uri;
+        } else {
+            url = httpHost + uri;
         }
-        String url = maskSensitiveParameters(httpHost + uri);
-        return String.format("%s %s", request.getMethod(), url);
+        return request.getMethod() + " " + maskSensitiveParameters(url);
     }
 
     private String getHttpHost(HttpContext context) {
-        if (context != null) {
-            if (HttpClientContext.class.isAssignableFrom(context.getClass())) {
-                return ((HttpClientContext) context).getHttpRoute().getTargetHost().toString();
-            }
-
-            if (context.getAttribute(HttpClientContext.HTTP_ROUTE) instanceof RouteInfo) {
-                return ((RouteInfo) context.getAttribute(HttpClientContext.HTTP_ROUTE)).getTargetHost().toString();
-            }
-        }
-
-        return null;
+        HttpHost targetHost = RouteUtil.getTargetHost(context);
+        return targetHost == null ? null : targetHost.toString();
     }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.processor.request;
+
+import ee.datanor.httpclient.logger.event.LogField;
+import ee.datanor.httpclient.logger.processor.RequestLogProcessor;
+import ee.datanor.httpclient.logger.route.RouteNormalizer;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * Logs the method and route template of the request, e.g. {@code GET /users/{id}/orders/{id}}, as a low-cardinality key
+ * next to the request line.
+ */
+public class RequestRouteLogProcessor implements RequestLogProcessor {
+    public static final String MDC_KEY = LogField.REQUEST_ROUTE.getKey();
+
+    private final RouteNormalizer routeNormalizer;
+
+    public RequestRouteLogProcessor() {
+        this(new RouteNormalizer());
+    }
+
+    public RequestRouteLogProcessor(RouteNormalizer routeNormalizer) {
+        this.routeNormalizer = routeNormalizer;
+    }
+
+    @Override
+    public void process(HttpRequest httpRequest, HttpContext context) {
+        setValue(context, LogField.REQUEST_ROUTE, httpRequest.getMethod() + " " + routeNormalizer.normalize(httpRequest));
+    }
+}
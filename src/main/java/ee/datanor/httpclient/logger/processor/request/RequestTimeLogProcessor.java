@@ -16,30 +16,71 @@
 
 package ee.datanor.httpclient.logger.processor.request;
 
+import ee.datanor.httpclient.logger.event.LogField;
 import ee.datanor.httpclient.logger.processor.RequestLogProcessor;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.protocol.HttpContext;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Locale;
 
 public class RequestTimeLogProcessor implements RequestLogProcessor {
-    public static final String MDC_KEY = "HC_REQUEST_TIME";
+    public static final String MDC_KEY = LogField.REQUEST_TIME.getKey();
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").withLocale(Locale.getDefault());
 
-    private DateTimeFormatter dateTimeFormatter;
+    private final DateTimeFormatter dateTimeFormatter;
+    private final Clock clock;
+    private volatile FormattedTime lastTime = new FormattedTime(Long.MIN_VALUE, null);
 
     public RequestTimeLogProcessor() {
         this(DATE_FORMAT);
     }
 
     public RequestTimeLogProcessor(DateTimeFormatter dateTimeFormatter) {
+        this(dateTimeFormatter, Clock.systemDefaultZone());
+    }
+
+    RequestTimeLogProcessor(Clock clock) {
+        this(DATE_FORMAT, clock);
+    }
+
+    RequestTimeLogProcessor(DateTimeFormatter dateTimeFormatter, Clock clock) {
         this.dateTimeFormatter = dateTimeFormatter;
+        this.clock = clock;
     }
 
     @Override
     public void process(HttpRequest httpRequest, HttpContext httpContext) {
-        setMDCValue(MDC_KEY, dateTimeFormatter.format(OffsetDateTime.now()));
+        setValue(httpContext, LogField.REQUEST_TIME, formatNow());
+    }
+
+    /**
+     * With the default format, which has no sub-millisecond fields, the formatted time is reused by the requests of the
+     * same millisecond. Custom formats are applied to the full precision of the clock.
+     */
+    private String formatNow() {
+        if (dateTimeFormatter != DATE_FORMAT) {
+            return dateTimeFormatter.format(OffsetDateTime.now(clock));
+        }
+        long now = clock.millis();
+        FormattedTime time = lastTime;
+        if (time.millis != now) {
+            time = new FormattedTime(now, dateTimeFormatter.format(OffsetDateTime.ofInstant(Instant.ofEpochMilli(now), clock.getZone())));
+            lastTime = time;
+        }
+        return time.text;
+    }
+
+    private static final class FormattedTime {
+        private final long millis;
+        private final String text;
+
+        private FormattedTime(long millis, String text) {
+            this.millis = millis;
+            this.text = text;
+        }
     }
 }
@@ -16,16 +16,30 @@
 
 package ee.datanor.httpclient.logger.processor.response;
 
+import ee.datanor.httpclient.logger.capture.BodyCapture;
+import ee.datanor.httpclient.logger.capture.CapturingHttpEntity;
+import ee.datanor.httpclient.logger.capture.ContentDecoderRegistry;
+import ee.datanor.httpclient.logger.capture.DeferredLog;
+import ee.datanor.httpclient.logger.capture.EntityCapture;
+import ee.datanor.httpclient.logger.event.LazyValue;
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
 import ee.datanor.httpclient.logger.masker.BodyMasker;
+import ee.datanor.httpclient.logger.masker.MaskingEngine;
+import ee.datanor.httpclient.logger.metrics.ProcessorMetrics;
+import ee.datanor.httpclient.logger.processor.EntityCaptureLogProcessor;
 import ee.datanor.httpclient.logger.processor.LogProcessor;
 import ee.datanor.httpclient.logger.processor.ResponseLogProcessor;
+import ee.datanor.httpclient.logger.store.BodyStore;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hc.client5.http.entity.GZIPInputStreamFactory;
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpEntityContainer;
+import org.apache.hc.core5.http.HttpMessage;
 import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.io.entity.BasicHttpEntity;
 import org.apache.hc.core5.http.protocol.HttpContext;
@@ -41,14 +55,26 @@ import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 
-public class ResponseBodyLogProcessor implements ResponseLogProcessor {
-    private static final String LENGTH_MDC_KEY = "HC_RESPONSE_BODY_LENGTH";
-    private static final String BODY_MDC_KEY = "HC_RESPONSE_BODY";
+public class ResponseBodyLogProcessor implements ResponseLogProcessor, EntityCaptureLogProcessor {
     private static final int DEFAULT_MAX_LOGGED_CONTENT_LENGTH = 2048;
 
     private final int maxLoggedResponseLength;
     private final Set<String> includedResponseBodyMediaSubtypes;
-    private final Set<BodyMasker> sensitiveBodyMaskers;
+    private final MaskingEngine maskingEngine;
+    private final CaptureMode captureMode;
+    private final ContentDecoderRegistry contentDecoders;
+    private final BodyStore bodyStore;
+
+    public enum CaptureMode {
+        /**
+         * Response entity is read and replayed to the application, record is logged immediately.
+         */
+        BUFFERED,
+        /**
+         * Bytes are teed while the application reads the entity, record is logged on EOF or close.
+         */
+        STREAMING
+    }
 
     public ResponseBodyLogProcessor() {
         this(DEFAULT_MAX_LOGGED_CONTENT_LENGTH, Set.of("json", "xml"), Set.of());
@@ -56,26 +82,117 @@ public class ResponseBodyLogProcessor implements ResponseLogProcessor {
 
 
     public ResponseBodyLogProcessor(int maxLoggedResponseLength, Set<String> includedResponseBodyMediaSubtypes, Set<BodyMasker> sensitiveBodyMaskers) {
+        this(maxLoggedResponseLength, includedResponseBodyMediaSubtypes, sensitiveBodyMaskers, CaptureMode.BUFFERED);
+    }
+
+    public ResponseBodyLogProcessor(int maxLoggedResponseLength, Set<String> includedResponseBodyMediaSubtypes, Set<BodyMasker> sensitiveBodyMaskers,
+                                    CaptureMode captureMode) {
+        this(maxLoggedResponseLength, includedResponseBodyMediaSubtypes, sensitiveBodyMaskers, captureMode, ContentDecoderRegistry.defaults());
+    }
+
+    public ResponseBodyLogProcessor(int maxLoggedResponseLength, Set<String> includedResponseBodyMediaSubtypes, Set<BodyMasker> sensitiveBodyMaskers,
+                                    CaptureMode captureMode, ContentDecoderRegistry contentDecoders) {
+        this(maxLoggedResponseLength, includedResponseBodyMediaSubtypes, sensitiveBodyMaskers, captureMode, contentDecoders, null);
+    }
+
+    /**
+     * With a body store the record carries a reference to the body, each distinct body is stored once, and
+     * {@code HC_RESPONSE_BODY_LENGTH} is the number of captured bytes.
+     */
+    public ResponseBodyLogProcessor(int maxLoggedResponseLength, Set<String> includedResponseBodyMediaSubtypes, Set<BodyMasker> sensitiveBodyMaskers,
+                                    CaptureMode captureMode, ContentDecoderRegistry contentDecoders, BodyStore bodyStore) {
         this.maxLoggedResponseLength = maxLoggedResponseLength;
         this.includedResponseBodyMediaSubtypes = includedResponseBodyMediaSubtypes;
-        this.sensitiveBodyMaskers = sensitiveBodyMaskers;
+        this.maskingEngine = MaskingEngine.compile(sensitiveBodyMaskers);
+        this.captureMode = captureMode;
+        this.contentDecoders = contentDecoders;
+        this.bodyStore = bodyStore;
     }
 
     @Override
     public void process(HttpResponse httpResponse, HttpContext context) {
         if (!responseBodyMediaSubtypeMatches(httpResponse)) {
-            setMDCValue(BODY_MDC_KEY, LogProcessor.EMPTY_REPLACEMENT);
-            setMDCValue(LENGTH_MDC_KEY, LogProcessor.EMPTY_REPLACEMENT);
+            setValue(context, LogField.RESPONSE_BODY, LogProcessor.EMPTY_REPLACEMENT);
+            setValue(context, LogField.RESPONSE_BODY_LENGTH, LogProcessor.EMPTY_REPLACEMENT);
             return;
         }
-        String responseBody = getResponseBody(httpResponse);
-        if (responseBody != null && responseBody.length() > maxLoggedResponseLength) {
-            responseBody = responseBody.substring(0, maxLoggedResponseLength);
+        if (captureMode == CaptureMode.STREAMING && captureStreamingBody(httpResponse, context)) {
+            return;
+        }
+        HttpEntity httpEntity = getEntity(httpResponse);
+        BodyCapture capture = null;
+        if (httpEntity != null) {
+            try {
+                capture = captureBufferedBody((HttpEntityContainer) httpResponse, httpEntity);
+            } catch (IOException e) {
+                log.error("Failed to read response entity", e);
+            }
+        }
+        if (capture == null) {
+            setValue(context, LogField.RESPONSE_BODY, null);
+            setValue(context, LogField.RESPONSE_BODY_LENGTH, 0);
+            return;
+        }
+        setBody(LogEvent.find(context), capture, httpEntity, ProcessorMetrics.find(context));
+    }
+
+    private void setBody(LogEvent event, BodyCapture capture, EntityDetails entityDetails, ProcessorMetrics metrics) {
+        LazyValue responseBody = renderLater(capture, entityDetails, maskingEngine, metrics, bodyStore);
+        setValue(event, LogField.RESPONSE_BODY, responseBody);
+        if (bodyStore == null) {
+            setValue(event, LogField.RESPONSE_BODY_LENGTH, LazyValue.of(() -> responseBody.toString().length()));
+        } else {
+            setValue(event, LogField.RESPONSE_BODY_LENGTH, capture.size());
+        }
+    }
+
+    private HttpEntity getEntity(HttpResponse response) {
+        if (HttpEntityContainer.class.isAssignableFrom(response.getClass())) {
+            return ((HttpEntityContainer) response).getEntity();
+        }
+        return null;
+    }
+
+    private boolean captureStreamingBody(HttpResponse response, HttpContext context) {
+        if (context == null || !HttpEntityContainer.class.isAssignableFrom(response.getClass())) {
+            return false;
+        }
+        HttpEntityContainer httpEntityContainer = (HttpEntityContainer) response;
+        HttpEntity httpEntity = httpEntityContainer.getEntity();
+        if (httpEntity == null) {
+            return false;
+        }
+        BodyCapture capture = createBodyCapture(httpEntity, maxLoggedResponseLength, contentDecoders);
+        if (capture == null) {
+            setValue(context, LogField.RESPONSE_BODY, LogProcessor.EMPTY_REPLACEMENT);
+            setValue(context, LogField.RESPONSE_BODY_LENGTH, LogProcessor.EMPTY_REPLACEMENT);
+            return true;
         }
-        responseBody = maskSensitivePatterns(sensitiveBodyMaskers, responseBody);
-        setMDCValue(BODY_MDC_KEY, replaceEmpty(responseBody));
-        long contentLength = responseBody == null ? 0 : responseBody.length();
-        setMDCValue(LENGTH_MDC_KEY, replaceEmpty(String.valueOf(contentLength)));
+
+        DeferredLog.Part part = registerDeferredBody(capture, httpEntity, context);
+        httpEntityContainer.setEntity(new CapturingHttpEntity(httpEntity, capture, part::complete));
+        return true;
+    }
+
+    @Override
+    public EntityCapture captureEntity(HttpMessage message, EntityDetails entityDetails, HttpContext context) {
+        if (entityDetails == null || context == null || !mediaSubtypeMatches(getMediaType(message, entityDetails))) {
+            return null;
+        }
+        BodyCapture capture = createBodyCapture(entityDetails, maxLoggedResponseLength, contentDecoders);
+        if (capture == null) {
+            return null;
+        }
+        return new EntityCapture(capture, registerDeferredBody(capture, entityDetails, context)::complete);
+    }
+
+    private DeferredLog.Part registerDeferredBody(BodyCapture capture, EntityDetails entityDetails, HttpContext context) {
+        LogEvent event = LogEvent.find(context);
+        ProcessorMetrics metrics = ProcessorMetrics.find(context);
+        return DeferredLog.get(context, DeferredLog.RESPONSE_ATTRIBUTE).register(() -> {
+            capture.finish();
+            setBody(event, capture, entityDetails, metrics);
+        });
     }
 
     public String getResponseBody(HttpResponse response) {
@@ -96,21 +213,21 @@ public class ResponseBodyLogProcessor implements ResponseLogProcessor {
             return null;
         }
 
-        Charset charset = getCharset(httpEntity);
+        BodyCapture capture = captureBufferedBody(httpEntityContainer, httpEntity);
+        return capture == null ? null : capture.decode(getCharset(httpEntity));
+    }
 
-        String content;
-        InputStream newInputStream;
+    private BodyCapture captureBufferedBody(HttpEntityContainer httpEntityContainer, HttpEntity httpEntity) throws IOException {
+        // the original bytes are replayed as they are, only the logged prefix is decoded
+        byte[] content = readContent(httpEntity);
+        httpEntityContainer.setEntity(cloneEntity(httpEntity, new ByteArrayInputStream(content)));
 
-        if ("gzip".equals(httpEntity.getContentEncoding())) {
-            content = consumeGzipStream(httpEntity);
-            newInputStream = createGzipInputStream(content.getBytes(charset));
-        } else {
-            content = consumeContent(httpEntity);
-            newInputStream = new ByteArrayInputStream(content.getBytes(charset));
+        BodyCapture capture = createBodyCapture(httpEntity, maxLoggedResponseLength, contentDecoders);
+        if (capture != null) {
+            capture.capture(content, 0, content.length);
+            capture.finish();
         }
-
-        httpEntityContainer.setEntity(cloneEntity(httpEntity, newInputStream));
-        return content;
+        return capture;
     }
 
     public static BasicHttpEntity cloneEntity(EntityDetails originalEntity, InputStream content) {
@@ -119,6 +236,11 @@ public class ResponseBodyLogProcessor implements ResponseLogProcessor {
                 originalEntity.getContentEncoding(), originalEntity.isChunked());
     }
 
+    /**
+     * @deprecated inflates the whole body; responses are captured with a {@link BodyCapture} that decodes only the
+     * logged prefix with a decoder of the {@link ContentDecoderRegistry}
+     */
+    @Deprecated
     protected String consumeGzipStream(HttpEntity httpEntity) throws IOException {
         if (httpEntity == null) {
             return null;
@@ -134,12 +256,20 @@ public class ResponseBodyLogProcessor implements ResponseLogProcessor {
         }
     }
 
+    /**
+     * @deprecated use a {@link BodyCapture} with the gzip decoder of {@link ContentDecoderRegistry#defaults()}
+     */
+    @Deprecated
     public static String readGzipStream(InputStream inputStream, Charset charset) throws IOException {
         try (InputStream gzip = GZIPInputStreamFactory.getInstance().create(inputStream)) {
             return new String(gzip.readAllBytes(), charset);
         }
     }
 
+    /**
+     * @deprecated compressed responses are replayed unchanged, see {@link BodyCapture} and {@link ContentDecoderRegistry}
+     */
+    @Deprecated
     public static InputStream createGzipInputStream(byte[] content) throws IOException {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         OutputStream gzip = new GZIPOutputStream(out);
@@ -152,24 +282,33 @@ public class ResponseBodyLogProcessor implements ResponseLogProcessor {
         if (httpEntity == null) {
             return null;
         }
+        return new String(readContent(httpEntity), getCharset(httpEntity));
+    }
 
-        Charset charset = getCharset(httpEntity);
-
-        try {
-            return new String(httpEntity.getContent().readAllBytes(), charset);
+    protected byte[] readContent(HttpEntity httpEntity) throws IOException {
+        try (InputStream content = httpEntity.getContent()) {
+            return content.readAllBytes();
         } catch (UnsupportedOperationException e) {
-            return getEntityStream(httpEntity).toString(charset);
+            return getEntityStream(httpEntity).toByteArray();
         }
     }
 
     private boolean responseBodyMediaSubtypeMatches(HttpResponse httpResponse) {
+        Header contentType = httpResponse.getFirstHeader("Content-Type");
+        return contentType != null && mediaSubtypeMatches(contentType.getValue());
+    }
+
+    private String getMediaType(HttpMessage message, EntityDetails entityDetails) {
+        Header contentType = message.getFirstHeader("Content-Type");
+        return contentType != null ? contentType.getValue() : entityDetails.getContentType();
+    }
+
+    private boolean mediaSubtypeMatches(String mediaType) {
         try {
-            String mediaType = httpResponse.getHeader("Content-Type").getValue();
-            ContentType contentType = ContentType.parseLenient(mediaType);
-            String mimeType = contentType.getMimeType();
             if (StringUtils.isEmpty(mediaType)) {
                 return false;
             }
+            String mimeType = ContentType.parseLenient(mediaType).getMimeType();
             return includedResponseBodyMediaSubtypes.stream()
                     .map(String::toLowerCase)
                     .anyMatch(mimeType::contains);
@@ -177,4 +316,11 @@ public class ResponseBodyLogProcessor implements ResponseLogProcessor {
             return false;
         }
     }
+
+    /**
+     * Engine the body maskers were compiled into, for its per-masker hit counts.
+     */
+    public MaskingEngine getMaskingEngine() {
+        return maskingEngine;
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.processor.response;
+
+import ee.datanor.httpclient.logger.capture.DeferredLog;
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
+import ee.datanor.httpclient.logger.processor.ResponseLogProcessor;
+import ee.datanor.httpclient.logger.timing.ExchangeTiming;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * Logs exchange timings in milliseconds with microsecond precision. Needs an exec handler
+ * ({@code HttpClientLoggerExecHandler} or {@code AsyncHttpClientLoggerExecHandler}) that times the exchange, the body
+ * time is known only when the response record waits for the body, i.e. when the body is streamed.
+ */
+public class ResponseDurationLogProcessor implements ResponseLogProcessor {
+    public static final String MDC_KEY = LogField.RESPONSE_DURATION.getKey();
+    public static final String TTFB_MDC_KEY = LogField.RESPONSE_TTFB.getKey();
+    public static final String BODY_TIME_MDC_KEY = LogField.RESPONSE_BODY_TIME.getKey();
+
+    @Override
+    public void process(HttpResponse httpResponse, HttpContext context) {
+        ExchangeTiming timing = ExchangeTiming.find(context);
+        if (timing == null) {
+            return;
+        }
+        LogEvent event = LogEvent.find(context);
+        setTimings(event, timing);
+        setValue(event, LogField.RESPONSE_TTFB, formatMillis(timing.getTimeToFirstByte()));
+        DeferredLog.get(context, DeferredLog.RESPONSE_ATTRIBUTE).beforeEmit(() -> setTimings(event, timing));
+    }
+
+    private void setTimings(LogEvent event, ExchangeTiming timing) {
+        setValue(event, LogField.RESPONSE_DURATION, formatMillis(timing.getDuration()));
+        setValue(event, LogField.RESPONSE_BODY_TIME, formatMillis(timing.getBodyTime()));
+    }
+
+    static String formatMillis(long nanos) {
+        if (nanos == ExchangeTiming.UNKNOWN) {
+            return null;
+        }
+        long micros = nanos / 1000;
+        return (micros / 1000) + "." + String.valueOf(1000 + micros % 1000).substring(1);
+    }
+}
@@ -17,28 +17,39 @@
 
 package ee.datanor.httpclient.logger.processor.response;
 
+import ee.datanor.httpclient.logger.event.LazyValue;
+import ee.datanor.httpclient.logger.event.LogField;
 import ee.datanor.httpclient.logger.processor.ResponseLogProcessor;
-import ee.datanor.httpclient.logger.util.HeaderUtil;
+import ee.datanor.httpclient.logger.util.HeaderSelector;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.protocol.HttpContext;
 
 import java.util.Set;
 
 public class ResponseHeadersLogProcessor implements ResponseLogProcessor {
-    public static final String MDC_KEY = "HC_RESPONSE_HEADERS";
+    public static final String MDC_KEY = LogField.RESPONSE_HEADERS.getKey();
 
-    private final Set<String> includedResponseHeaders;
+    private final HeaderSelector headerSelector;
 
     public ResponseHeadersLogProcessor() {
         this(Set.of("content-type", "location"));
     }
 
     public ResponseHeadersLogProcessor(Set<String> includedResponseHeaders) {
-        this.includedResponseHeaders = includedResponseHeaders;
+        this(HeaderSelector.of(includedResponseHeaders));
+    }
+
+    /**
+     * The selector decides which headers are logged and how their values are masked.
+     */
+    public ResponseHeadersLogProcessor(HeaderSelector headerSelector) {
+        this.headerSelector = headerSelector;
     }
 
     @Override
     public void process(HttpResponse httpResponse, HttpContext context) {
-        setMDCValue(MDC_KEY, replaceEmpty(HeaderUtil.headersToString(httpResponse.getHeaders(), includedResponseHeaders)));
+        Header[] headers = httpResponse.getHeaders();
+        setValue(context, LogField.RESPONSE_HEADERS, LazyValue.of(() -> headerSelector.select(headers)));
     }
 }
@@ -16,15 +16,16 @@
 
 package ee.datanor.httpclient.logger.processor.response;
 
+import ee.datanor.httpclient.logger.event.LogField;
 import ee.datanor.httpclient.logger.processor.ResponseLogProcessor;
 import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.protocol.HttpContext;
 
 public class ResponseStatusLogProcessor implements ResponseLogProcessor {
-    public static final String MDC_KEY = "HC_RESPONSE_STATUS";
+    public static final String MDC_KEY = LogField.RESPONSE_STATUS.getKey();
 
     @Override
     public void process(HttpResponse httpResponse, HttpContext context) {
-        setMDCValue(MDC_KEY, String.valueOf(httpResponse.getCode()));
+        setValue(context, LogField.RESPONSE_STATUS, httpResponse.getCode());
     }
 }
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.route;
+
+import ee.datanor.httpclient.logger.util.RouteUtil;
+import org.apache.hc.core5.http.HttpRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns request paths into route templates of bounded cardinality, e.g. {@code /users/9d1f.../orders/123} into
+ * {@code /users/{id}/orders/{id}}. Configured templates are matched segment by segment, literal segments before
+ * {@code {name}} segments that match any value. In paths no template matches, numeric, UUID and hex segments are replaced
+ * by {@code {id}}. Results are memoized in a bounded cache that evicts the least recently used paths, split into
+ * stripes with their own lock, so that a burst of unique paths does not evict the frequent ones all at once.
+ */
+public final class RouteNormalizer {
+    public static final String ID = "{id}";
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private static final int MIN_HEX_ID_LENGTH = 8;
+    private static final int UUID_LENGTH = 36;
+    private static final int STRIPES = 16;
+    private static final int MIN_STRIPE_SIZE = 64;
+
+    private final Node templates = new Node();
+    private final boolean detectIds;
+    private final LruCache[] cache;
+
+    public RouteNormalizer() {
+        this(List.of());
+    }
+
+    public RouteNormalizer(Collection<String> templates) {
+        this(templates, true, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param templates route templates like {@code /customers/{customerId}/accounts}
+     * @param detectIds replace numeric, UUID and hex segments of paths no template matches
+     * @param cacheSize maximum number of memoized paths, {@code 0} disables memoization
+     */
+    public RouteNormalizer(Collection<String> templates, boolean detectIds, int cacheSize) {
+        this.detectIds = detectIds;
+        int stripes = cacheSize == 0 ? 0 : cacheSize >= STRIPES * MIN_STRIPE_SIZE ? STRIPES : 1;
+        this.cache = new LruCache[stripes];
+        for (int i = 0; i < stripes; i++) {
+            cache[i] = new LruCache((cacheSize + stripes - 1) / stripes);
+        }
+        templates.forEach(this::addTemplate);
+    }
+
+    private void addTemplate(String template) {
+        Node node = this.templates;
+        for (String segment : split(template)) {
+            node = isVariable(segment) ? node.variableOrCreate() : node.literals.computeIfAbsent(segment, key -> new Node());
+        }
+        node.template = template;
+    }
+
+    /**
+     * Route template of the request path, the query is left out.
+     */
+    public String normalize(HttpRequest request) {
+        return normalize(RouteUtil.getPath(request));
+    }
+
+    public String normalize(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        if (cache.length == 0) {
+            return template(path);
+        }
+        LruCache stripe = stripe(path);
+        String route;
+        synchronized (stripe) {
+            route = stripe.get(path);
+        }
+        if (route == null) {
+            route = template(path);
+            synchronized (stripe) {
+                stripe.put(path, route);
+            }
+        }
+        return route;
+    }
+
+    boolean isCached(String path) {
+        LruCache stripe = stripe(path);
+        synchronized (stripe) {
+            return stripe.containsKey(path);
+        }
+    }
+
+    private LruCache stripe(String path) {
+        int hash = path.hashCode();
+        return cache[(hash ^ hash >>> 16) & (cache.length - 1)];
+    }
+
+    private String template(String path) {
+        List<String> segments = split(path);
+        String template = match(templates, segments, 0);
+        if (template != null) {
+            return template;
+        }
+        return detectIds ? replaceIds(path, segments) : path;
+    }
+
+    private static String match(Node node, List<String> segments, int index) {
+        if (index == segments.size()) {
+            return node.template;
+        }
+        Node literal = node.literals.get(segments.get(index));
+        String template = literal == null ? null : match(literal, segments, index + 1);
+        if (template == null && node.variable != null) {
+            template = match(node.variable, segments, index + 1);
+        }
+        return template;
+    }
+
+    private static String replaceIds(String path, List<String> segments) {
+        int first = 0;
+        while (first < segments.size() && !isId(segments.get(first))) {
+            first++;
+        }
+        if (first == segments.size()) {
+            return path;
+        }
+        StringBuilder route = new StringBuilder(path.length());
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            route.append('/').append(i >= first && isId(segment) ? ID : segment);
+        }
+        return route.toString();
+    }
+
+    static boolean isId(String segment) {
+        if (segment.isEmpty()) {
+            return false;
+        }
+        if (segment.length() == UUID_LENGTH && isUuid(segment)) {
+            return true;
+        }
+        boolean digit = false;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+            digit |= c <= '9';
+        }
+        // words made of hex letters only, like "cafe" or "feed", are kept
+        return digit && (segment.length() >= MIN_HEX_ID_LENGTH || isNumber(segment));
+    }
+
+    private static boolean isNumber(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if (segment.charAt(i) < '0' || segment.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUuid(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? segment.charAt(i) != '-' : Character.digit(segment.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.length() > 1 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+    }
+
+    /**
+     * Segments of a path after its leading slash, {@code /a//b/} has the segments {@code a}, {@code ""}, {@code b} and {@code ""}.
+     */
+    private static List<String> split(String path) {
+        List<String> segments = new ArrayList<>();
+        int start = path.startsWith("/") ? 1 : 0;
+        for (int end = path.indexOf('/', start); end >= 0; end = path.indexOf('/', start)) {
+            segments.add(path.substring(start, end));
+            start = end + 1;
+        }
+        segments.add(path.substring(start));
+        return segments;
+    }
+
+    private static final class LruCache extends LinkedHashMap<String, String> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        private LruCache(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private Node variable;
+        private String template;
+
+        private Node variableOrCreate() {
+            if (variable == null) {
+                variable = new Node();
+            }
+            return variable;
+        }
+    }
+}
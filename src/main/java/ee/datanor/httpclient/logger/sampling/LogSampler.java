@@ -0,0 +1,135 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.sampling;
+
+import ee.datanor.httpclient.logger.util.RouteUtil;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.net.URIAuthority;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides before any processor runs whether an exchange is logged. The rate of an exchange is taken from the longest
+ * matching path prefix, then from the target host, then from the method and finally the global rate. A path prefix
+ * matches whole path segments only. Rules are compiled into hash maps and a path prefix trie when they are added, a
+ * decision only looks them up.
+ */
+public final class LogSampler {
+    private final double rate;
+    private final Map<String, Double> hostRates;
+    private final Map<String, Double> methodRates;
+    private final Map<String, Double> pathPrefixRates;
+    private final PathPrefixTrie pathPrefixTrie;
+    private final boolean summary;
+
+    private LogSampler(double rate, Map<String, Double> hostRates, Map<String, Double> methodRates, Map<String, Double> pathPrefixRates,
+                       boolean summary) {
+        this.rate = checkRate(rate);
+        this.hostRates = Map.copyOf(hostRates);
+        this.methodRates = Map.copyOf(methodRates);
+        this.pathPrefixRates = Map.copyOf(pathPrefixRates);
+        this.pathPrefixTrie = new PathPrefixTrie(pathPrefixRates);
+        this.summary = summary;
+    }
+
+    /**
+     * @param rate share of exchanges logged, from 0 to 1
+     */
+    public static LogSampler rate(double rate) {
+        return new LogSampler(rate, Map.of(), Map.of(), Map.of(), false);
+    }
+
+    public LogSampler withHostRate(String host, double hostRate) {
+        Map<String, Double> rates = new HashMap<>(hostRates);
+        rates.put(host.toLowerCase(Locale.ROOT), checkRate(hostRate));
+        return new LogSampler(rate, rates, methodRates, pathPrefixRates, summary);
+    }
+
+    public LogSampler withMethodRate(String method, double methodRate) {
+        Map<String, Double> rates = new HashMap<>(methodRates);
+        rates.put(method.toUpperCase(Locale.ROOT), checkRate(methodRate));
+        return new LogSampler(rate, hostRates, rates, pathPrefixRates, summary);
+    }
+
+    public LogSampler withPathPrefixRate(String pathPrefix, double pathPrefixRate) {
+        Map<String, Double> rates = new HashMap<>(pathPrefixRates);
+        rates.put(pathPrefix, checkRate(pathPrefixRate));
+        return new LogSampler(rate, hostRates, methodRates, rates, summary);
+    }
+
+    /**
+     * With summary an exchange that is not sampled is logged as a single line with method, target and status.
+     */
+    public LogSampler withSummary(boolean withSummary) {
+        return new LogSampler(rate, hostRates, methodRates, pathPrefixRates, withSummary);
+    }
+
+    public boolean isSummary() {
+        return summary;
+    }
+
+    public boolean sample(HttpRequest request, HttpContext context) {
+        double exchangeRate = resolveRate(request.getMethod(), getTargetHost(request, context), RouteUtil.getPath(request));
+        if (exchangeRate >= 1) {
+            return true;
+        }
+        return exchangeRate > 0 && ThreadLocalRandom.current().nextDouble() < exchangeRate;
+    }
+
+    public double resolveRate(String method, String host, String path) {
+        double pathPrefixRate = path == null ? Double.NaN : pathPrefixTrie.find(path);
+        if (!Double.isNaN(pathPrefixRate)) {
+            return pathPrefixRate;
+        }
+        Double hostRate = host == null ? null : hostRates.get(host.toLowerCase(Locale.ROOT));
+        if (hostRate != null) {
+            return hostRate;
+        }
+        Double methodRate = method == null ? null : methodRates.get(method.toUpperCase(Locale.ROOT));
+        return methodRate != null ? methodRate : rate;
+    }
+
+    /**
+     * Method, target host and path of the request, the query is left out as it may contain sensitive parameters.
+     */
+    public String summarize(HttpRequest request, HttpContext context) {
+        String host = getTargetHost(request, context);
+        String path = RouteUtil.getPath(request);
+        return request.getMethod() + " " + (host == null ? "" : host) + (path == null ? "" : path);
+    }
+
+    static String getTargetHost(HttpRequest request, HttpContext context) {
+        HttpHost targetHost = RouteUtil.getTargetHost(context);
+        if (targetHost != null) {
+            return targetHost.getHostName();
+        }
+        URIAuthority authority = request.getAuthority();
+        return authority == null ? null : authority.getHostName();
+    }
+
+    private static double checkRate(double rate) {
+        if (!(rate >= 0 && rate <= 1)) {
+            throw new IllegalArgumentException("Sampling rate must be between 0 and 1: " + rate);
+        }
+        return rate;
+    }
+}
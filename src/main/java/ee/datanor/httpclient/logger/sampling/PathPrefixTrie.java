@@ -0,0 +1,89 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.sampling;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Character trie of path prefixes, a lookup walks the path once and keeps the rate of the longest prefix seen that ends
+ * on a segment boundary.
+ */
+final class PathPrefixTrie {
+    private final Node root = new Node();
+
+    PathPrefixTrie(Map<String, Double> rates) {
+        rates.forEach(this::add);
+    }
+
+    private void add(String prefix, double rate) {
+        Node node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.childOrCreate(prefix.charAt(i));
+        }
+        node.rate = rate;
+    }
+
+    /**
+     * A prefix matches only whole path segments, {@code /health} matches {@code /health} and {@code /health/live} but
+     * not {@code /healthcheck}, unless the prefix itself ends with {@code /}.
+     *
+     * @return rate of the longest prefix of the path, {@code NaN} when there is none
+     */
+    double find(String path) {
+        Node node = root;
+        double rate = Double.NaN;
+        for (int i = 0; node != null; i++) {
+            if (!Double.isNaN(node.rate) && isSegmentEnd(path, i)) {
+                rate = node.rate;
+            }
+            node = i < path.length() ? node.child(path.charAt(i)) : null;
+        }
+        return rate;
+    }
+
+    private static boolean isSegmentEnd(String path, int length) {
+        return length == 0 || length == path.length() || path.charAt(length) == '/' || path.charAt(length - 1) == '/';
+    }
+
+    private static final class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private double rate = Double.NaN;
+
+        private Node child(char label) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == label) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node childOrCreate(char label) {
+            Node child = child(label);
+            if (child == null) {
+                child = new Node();
+                labels = Arrays.copyOf(labels, labels.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                labels[labels.length - 1] = label;
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+}
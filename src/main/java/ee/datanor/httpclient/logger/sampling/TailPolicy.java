@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.sampling;
+
+import java.time.Duration;
+
+/**
+ * Decides after the exchange whether its bodies are logged. Until then the bodies are kept as captured bytes and are
+ * neither decoded nor masked.
+ */
+@FunctionalInterface
+public interface TailPolicy {
+
+    /**
+     * @param status        response status, {@code 0} when there is no response
+     * @param durationNanos duration of the exchange
+     * @param failure       exception the exchange failed with, if any
+     */
+    boolean keep(int status, long durationNanos, Throwable failure);
+
+    default TailPolicy or(TailPolicy other) {
+        return (status, durationNanos, failure) -> keep(status, durationNanos, failure) || other.keep(status, durationNanos, failure);
+    }
+
+    static TailPolicy statusAtLeast(int minStatus) {
+        return (status, durationNanos, failure) -> status >= minStatus;
+    }
+
+    static TailPolicy slowerThan(Duration threshold) {
+        long thresholdNanos = threshold.toNanos();
+        return (status, durationNanos, failure) -> durationNanos > thresholdNanos;
+    }
+
+    static TailPolicy failed() {
+        return (status, durationNanos, failure) -> failure != null || status == 0;
+    }
+
+    /**
+     * Keeps 4xx and 5xx responses, failed exchanges and exchanges slower than the threshold.
+     */
+    static TailPolicy errorsOrSlowerThan(Duration threshold) {
+        return statusAtLeast(400).or(failed()).or(slowerThan(threshold));
+    }
+}
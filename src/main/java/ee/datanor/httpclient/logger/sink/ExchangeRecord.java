@@ -0,0 +1,95 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.sink;
+
+import ee.datanor.httpclient.logger.util.EscapeUtil;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Record decoded from a segment file, the field values are the UTF-8 decoded values as they were written.
+ */
+public final class ExchangeRecord {
+    private final boolean response;
+    private final long timestamp;
+    private final Map<String, String> fields;
+
+    ExchangeRecord(boolean response, long timestamp, Map<String, String> fields) {
+        this.response = response;
+        this.timestamp = timestamp;
+        this.fields = Collections.unmodifiableMap(fields);
+    }
+
+    public boolean isResponse() {
+        return response;
+    }
+
+    /**
+     * Epoch millis when the record was written.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Fields by key, in the order they were written.
+     */
+    public Map<String, String> getFields() {
+        return fields;
+    }
+
+    public String get(String key) {
+        return fields.get(key);
+    }
+
+    /**
+     * Tab separated line of the record type, the time and the {@code key=value} fields, values escaped as in MDC.
+     */
+    public String toText() {
+        StringBuilder out = new StringBuilder(256);
+        out.append(response ? "RES" : "REQ").append('\t').append(Instant.ofEpochMilli(timestamp));
+        fields.forEach((key, value) -> {
+            out.append('\t').append(key).append('=');
+            EscapeUtil.escape(value, out);
+        });
+        return out.toString();
+    }
+
+    /**
+     * One line JSON object with the record type, the time and the fields.
+     */
+    public String toNdjson() {
+        StringBuilder out = new StringBuilder(256);
+        out.append("{\"type\":\"").append(response ? "response" : "request").append("\",\"time\":\"").append(Instant.ofEpochMilli(timestamp)).append('"');
+        fields.forEach((key, value) -> {
+            out.append(",\"");
+            EscapeUtil.escapeJson(key, out);
+            out.append("\":\"");
+            EscapeUtil.escapeJson(value, out);
+            out.append('"');
+        });
+        return out.append('}').toString();
+    }
+
+    @Override
+    public String toString() {
+        return toText();
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.sink;
+
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import static ee.datanor.httpclient.logger.sink.SegmentFormat.END_OF_SEGMENT;
+import static ee.datanor.httpclient.logger.sink.SegmentFormat.EXTRA_FIELD;
+import static ee.datanor.httpclient.logger.sink.SegmentFormat.INT;
+import static ee.datanor.httpclient.logger.sink.SegmentFormat.RECORD_HEADER;
+import static ee.datanor.httpclient.logger.sink.SegmentFormat.TYPE_REQUEST;
+import static ee.datanor.httpclient.logger.sink.SegmentFormat.TYPE_RESPONSE;
+
+/**
+ * Appends records in the binary format of {@link SegmentFormat} to preallocated memory-mapped segment files. A new
+ * segment is started when a record does not fit into the current one, the files are named so that they sort in the order
+ * they were written. Concurrent writers reserve their space with one atomic add and copy their record without locking,
+ * only rolling to a new segment is synchronized. Values longer than {@code maxValueBytes} are truncated, records that do
+ * not fit into an empty segment are dropped.
+ * <p>
+ * Use {@link SegmentReader} to read the segments back.
+ */
+@Slf4j
+public final class MappedSegmentSink implements RecordSink, AutoCloseable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_MAX_VALUE_BYTES = 64 * 1024;
+    private static final ThreadLocal<RecordEncoder> ENCODER = ThreadLocal.withInitial(RecordEncoder::new);
+
+    private final Path directory;
+    private final String prefix;
+    private final int segmentSize;
+    private final int maxValueBytes;
+    private final long startMillis = System.currentTimeMillis();
+    private final AtomicInteger segmentSequence = new AtomicInteger();
+    private final AtomicReference<Segment> current = new AtomicReference<>();
+    private final Object rollLock = new Object();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean closed;
+
+    public MappedSegmentSink(Path directory) throws IOException {
+        this(directory, "exchange", DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_VALUE_BYTES);
+    }
+
+    public MappedSegmentSink(Path directory, String prefix, int segmentSize, int maxValueBytes) throws IOException {
+        if (segmentSize < 4096 || segmentSize % 4 != 0) {
+            throw new IllegalArgumentException("Segment size must be a multiple of 4 and at least 4096: " + segmentSize);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        this.maxValueBytes = maxValueBytes;
+        this.current.set(newSegment());
+    }
+
+    @Override
+    public void write(LogEvent event, boolean response) {
+        if (closed) {
+            dropped.increment();
+            return;
+        }
+        RecordEncoder encoder = ENCODER.get();
+        encoder.start(maxValueBytes);
+        event.forEachValue(response, encoder);
+        try {
+            if (append(encoder, response ? TYPE_RESPONSE : TYPE_REQUEST)) {
+                written.increment();
+            } else {
+                dropped.increment();
+            }
+        } catch (IOException e) {
+            failed.increment();
+            log.warn("Failed to start a new segment in " + directory + " - " + e.getMessage(), e);
+        }
+    }
+
+    private boolean append(RecordEncoder encoder, int type) throws IOException {
+        Reservation reservation = reserve(SegmentFormat.align(encoder.size));
+        if (reservation == null) {
+            return false;
+        }
+        reservation.segment.write(reservation.offset, encoder, type);
+        return true;
+    }
+
+    /**
+     * Reserves the space of a record, rolling to a new segment when the current one is full. Returns {@code null} when
+     * the record does not fit into an empty segment or the sink is closed.
+     */
+    Reservation reserve(int length) throws IOException {
+        Segment segment = current.get();
+        if (length > segmentSize - segment.headerLength) {
+            return null;
+        }
+        int offset = segment.reserve(length);
+        while (offset < 0) {
+            if (closed) {
+                return null;
+            }
+            segment = roll(segment);
+            offset = segment.reserve(length);
+        }
+        return new Reservation(segment, offset);
+    }
+
+    private Segment roll(Segment full) throws IOException {
+        synchronized (rollLock) {
+            Segment segment = current.get();
+            if (segment == full) {
+                segment = newSegment();
+                current.set(segment);
+            }
+            return segment;
+        }
+    }
+
+    private Segment newSegment() throws IOException {
+        String name = String.format("%s-%013d-%06d%s", prefix, startMillis, segmentSequence.getAndIncrement(), SegmentFormat.SUFFIX);
+        return Segment.create(directory.resolve(name), segmentSize);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * Records that did not fit into an empty segment or were written after the sink was closed.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Flushes the current segment to the storage device. Records written concurrently with closing may be lost.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (rollLock) {
+            current.get().buffer.force();
+        }
+    }
+
+    static final class Reservation {
+        private final Segment segment;
+        private final int offset;
+
+        private Reservation(Segment segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
+    private static final class Segment {
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final int headerLength;
+        private final AtomicInteger position;
+
+        private Segment(MappedByteBuffer buffer, int headerLength) {
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+            this.headerLength = headerLength;
+            this.position = new AtomicInteger(headerLength);
+        }
+
+        static Segment create(Path path, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(SegmentFormat.MAGIC);
+                buffer.putShort(SegmentFormat.VERSION);
+                buffer.putShort((short) LogField.values().length);
+                for (LogField field : LogField.values()) {
+                    byte[] key = field.getKey().getBytes(StandardCharsets.UTF_8);
+                    buffer.putShort((short) key.length);
+                    buffer.put(key);
+                }
+                return new Segment(buffer, SegmentFormat.align(buffer.position()));
+            }
+        }
+
+        /**
+         * Returns the offset of the reserved space, or -1 when the segment is full. The length is written into the space
+         * at once, so that the reader can step over the record while its type is pending, even if it is never completed.
+         * The first writer that does not fit marks the end of the segment for the reader.
+         */
+        int reserve(int length) {
+            int offset = position.getAndAdd(length);
+            if (offset <= capacity - length) {
+                INT.setRelease(buffer, offset, length);
+                return offset;
+            }
+            if (offset >= 0 && offset < capacity) {
+                INT.setRelease(buffer, offset, END_OF_SEGMENT);
+            }
+            // keeps later writers from wrapping the position around
+            position.set(capacity);
+            return -1;
+        }
+
+        /**
+         * Replaces the reserved length with the exact one, both are the same when aligned, and completes the record.
+         */
+        void write(int offset, RecordEncoder encoder, int type) {
+            buffer.put(offset + RECORD_HEADER, encoder.bytes, RECORD_HEADER, encoder.size - RECORD_HEADER);
+            buffer.putInt(offset, encoder.size);
+            INT.setRelease(buffer, offset + 4, type);
+        }
+    }
+
+    /**
+     * Builds a record in a byte array kept by the thread, the length and type are written into the segment.
+     */
+    private static final class RecordEncoder implements BiConsumer<String, Object> {
+        private byte[] bytes = new byte[4096];
+        private int size;
+        private int maxValueBytes;
+
+        void start(int maxValue) {
+            this.maxValueBytes = maxValue;
+            size = RECORD_HEADER;
+            putLong(System.currentTimeMillis());
+        }
+
+        @Override
+        public void accept(String key, Object value) {
+            LogField field = LogField.forKey(key);
+            if (field == null) {
+                byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                ensure(3 + keyBytes.length);
+                bytes[size++] = (byte) EXTRA_FIELD;
+                bytes[size++] = (byte) (keyBytes.length >>> 8);
+                bytes[size++] = (byte) keyBytes.length;
+                put(keyBytes, keyBytes.length);
+            } else {
+                ensure(1);
+                bytes[size++] = (byte) field.ordinal();
+            }
+            byte[] valueBytes = value.toString().getBytes(StandardCharsets.UTF_8);
+            int length = truncatedLength(valueBytes);
+            ensure(4);
+            putInt(length);
+            put(valueBytes, length);
+        }
+
+        /**
+         * Cuts the value at a character boundary.
+         */
+        private int truncatedLength(byte[] value) {
+            if (value.length <= maxValueBytes) {
+                return value.length;
+            }
+            int length = maxValueBytes;
+            while (length > 0 && (value[length] & 0xc0) == 0x80) {
+                length--;
+            }
+            return length;
+        }
+
+        private void putLong(long value) {
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+
+        private void putInt(int value) {
+            ensure(4);
+            bytes[size++] = (byte) (value >>> 24);
+            bytes[size++] = (byte) (value >>> 16);
+            bytes[size++] = (byte) (value >>> 8);
+            bytes[size++] = (byte) value;
+        }
+
+        private void put(byte[] value, int length) {
+            ensure(length);
+            System.arraycopy(value, 0, bytes, size, length);
+            size += length;
+        }
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.sink;
+
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.util.EscapeUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes every record as one JSON object line, {@code {"type":"request","time":"...","HC_REQUEST_LINE":"...",...}}, the
+ * same lines as {@link ExchangeRecord#toNdjson()}, so every value is written as a JSON string. The record is encoded
+ * straight to UTF-8 in a buffer kept by the thread, escaping the values while they are copied.
+ * <p>
+ * Records are collected into a batch. When the next record does not fit, on {@link #flush()} and every
+ * {@code flushInterval}, the batch is swapped for a spare buffer and written with one call outside the lock, so the
+ * threads adding records only wait for the channel when both buffers are full. With {@code force} the file is forced to
+ * the storage device after each batch.
+ */
+@Slf4j
+public final class NdjsonSink implements RecordSink, AutoCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+    private static final ThreadLocal<JsonEncoder> ENCODER = ThreadLocal.withInitial(JsonEncoder::new);
+
+    private final WritableByteChannel channel;
+    private final boolean force;
+    private final int batchSize;
+    private final Object lock = new Object();
+    private final ScheduledExecutorService flusher;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private byte[] batch;
+    private byte[] spare;
+    private int batchLength;
+    private int batchRecords;
+
+    public NdjsonSink(OutputStream out) {
+        this(out, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param flushInterval interval of writing the collected records, {@code null} to write them only when the batch is full
+     */
+    public NdjsonSink(OutputStream out, int batchSize, Duration flushInterval) {
+        this(Channels.newChannel(out), batchSize, flushInterval, false);
+    }
+
+    public NdjsonSink(FileChannel channel, int batchSize, Duration flushInterval, boolean force) {
+        this((WritableByteChannel) channel, batchSize, flushInterval, force);
+    }
+
+    private NdjsonSink(WritableByteChannel channel, int batchSize, Duration flushInterval, boolean force) {
+        this.channel = channel;
+        this.force = force;
+        this.batchSize = batchSize;
+        this.batch = new byte[batchSize];
+        this.spare = new byte[batchSize];
+        if (flushInterval == null) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "httpclient-logger-ndjson-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = flushInterval.toMillis();
+            flusher.scheduleWithFixedDelay(this::flush, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void write(LogEvent event, boolean response) {
+        JsonEncoder encoder = ENCODER.get();
+        encoder.start(response);
+        event.forEachValue(response, encoder);
+        encoder.end();
+        boolean oversized = encoder.size > batchSize;
+        Batch full = null;
+        synchronized (lock) {
+            if (batchLength + encoder.size > batchSize) {
+                full = takeBatch();
+            }
+            if (!oversized) {
+                System.arraycopy(encoder.bytes, 0, batch, batchLength, encoder.size);
+                batchLength += encoder.size;
+                batchRecords++;
+            }
+        }
+        if (full != null || oversized) {
+            writeOut(full, oversized ? encoder : null);
+        }
+    }
+
+    /**
+     * Writes the collected records.
+     */
+    public void flush() {
+        Batch full;
+        synchronized (lock) {
+            full = takeBatch();
+        }
+        if (full != null) {
+            writeOut(full, null);
+        }
+    }
+
+    /**
+     * Swaps the batch for the spare buffer, waiting until the previous batch is written. Called holding the lock.
+     */
+    private Batch takeBatch() {
+        if (batchRecords == 0) {
+            return null;
+        }
+        boolean interrupted = false;
+        while (spare == null) {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        final Batch full = new Batch(batch, batchLength, batchRecords);
+        batch = spare;
+        spare = null;
+        batchLength = 0;
+        batchRecords = 0;
+        return full;
+    }
+
+    /**
+     * Writes the batch taken, if any, and then the record that did not fit into a batch, if any. The buffer of the
+     * batch becomes the spare one again after it is written, so the batches are written in order.
+     */
+    private void writeOut(Batch full, JsonEncoder oversized) {
+        try {
+            synchronized (channel) {
+                if (full != null) {
+                    write(ByteBuffer.wrap(full.bytes, 0, full.length), full.records);
+                }
+                if (oversized != null) {
+                    write(ByteBuffer.wrap(oversized.bytes, 0, oversized.size), 1);
+                }
+            }
+        } finally {
+            if (full != null) {
+                synchronized (lock) {
+                    spare = full.bytes;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void write(ByteBuffer buffer, int records) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (force) {
+                ((FileChannel) channel).force(false);
+            }
+            written.add(records);
+        } catch (IOException e) {
+            failed.add(records);
+            log.warn("Failed to write NDJSON records - " + e.getMessage(), e);
+        }
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Stops the flush thread, writes the collected records and closes the channel or stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                if (!flusher.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    log.warn("NDJSON flush thread did not stop in {} ms", CLOSE_TIMEOUT_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        synchronized (channel) {
+            channel.close();
+        }
+    }
+
+    private static final class Batch {
+        private final byte[] bytes;
+        private final int length;
+        private final int records;
+
+        Batch(byte[] bytes, int length, int records) {
+            this.bytes = bytes;
+            this.length = length;
+            this.records = records;
+        }
+    }
+
+    /**
+     * Encodes one record into a byte array kept by the thread.
+     */
+    private static final class JsonEncoder implements BiConsumer<String, Object> {
+        private static final byte[] REQUEST_START = "{\"type\":\"request\",\"time\":\"".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] RESPONSE_START = "{\"type\":\"response\",\"time\":\"".getBytes(StandardCharsets.US_ASCII);
+
+        private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+        private byte[] bytes = new byte[4096];
+        private int size;
+        private long timeMillis = Long.MIN_VALUE;
+        private byte[] time;
+
+        void start(boolean response) {
+            size = 0;
+            if (bytes.length > MAX_RETAINED_CAPACITY) {
+                bytes = new byte[4096];
+            }
+            put(response ? RESPONSE_START : REQUEST_START);
+            long millis = System.currentTimeMillis();
+            if (millis != timeMillis) {
+                timeMillis = millis;
+                time = Instant.ofEpochMilli(millis).toString().getBytes(StandardCharsets.US_ASCII);
+            }
+            put(time);
+            putByte('"');
+        }
+
+        @Override
+        public void accept(String key, Object value) {
+            putByte(',');
+            putString(key);
+            putByte(':');
+            putString(value instanceof CharSequence ? (CharSequence) value : value.toString());
+        }
+
+        void end() {
+            putByte('}');
+            putByte('\n');
+        }
+
+        private void putString(CharSequence value) {
+            ensure(value.length() * EscapeUtil.MAX_JSON_UTF8_BYTES + 2);
+            bytes[size++] = '"';
+            size = EscapeUtil.escapeJsonUtf8(value, bytes, size);
+            bytes[size++] = '"';
+        }
+
+        private void put(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, bytes, size, value.length);
+            size += value.length;
+        }
+
+        private void putByte(char c) {
+            ensure(1);
+            bytes[size++] = (byte) c;
+        }
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.sink;
+
+import ee.datanor.httpclient.logger.event.LogEvent;
+
+/**
+ * Receives the records of the logger instead of SLF4J.
+ */
+@FunctionalInterface
+public interface RecordSink {
+
+    /**
+     * Writes the request record, or the response record when {@code response} is set. Called on the thread that writes
+     * records, concurrently for different exchanges.
+     */
+    void write(LogEvent event, boolean response);
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.sink;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Layout of a segment file. The header is the magic, the format version and the keys of the known fields, each a
+ * {@code short} length and the UTF-8 bytes. Records follow at 4 byte aligned offsets: {@code int} length,
+ * {@code int} type, {@code long} epoch millis and the fields until the end of the record. A field is the {@code byte}
+ * index of a known key, or {@link #EXTRA_FIELD} followed by its own key, and an {@code int} length with the UTF-8 value.
+ */
+final class SegmentFormat {
+    static final int MAGIC = 0x48434c47;
+    static final short VERSION = 1;
+    static final String SUFFIX = ".hclog";
+
+    static final int RECORD_HEADER = 8;
+    static final int MIN_RECORD_LENGTH = RECORD_HEADER + 8;
+    static final int END_OF_SEGMENT = -1;
+    static final int TYPE_PENDING = 0;
+    static final int TYPE_REQUEST = 1;
+    static final int TYPE_RESPONSE = 2;
+    static final int EXTRA_FIELD = 0xff;
+
+    /**
+     * The type is written last with release semantics, a record is complete when its type is set.
+     */
+    static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private SegmentFormat() {
+    }
+
+    static int align(int length) {
+        return (length + 3) & ~3;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.sink;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static ee.datanor.httpclient.logger.sink.SegmentFormat.EXTRA_FIELD;
+import static ee.datanor.httpclient.logger.sink.SegmentFormat.MIN_RECORD_LENGTH;
+import static ee.datanor.httpclient.logger.sink.SegmentFormat.RECORD_HEADER;
+import static ee.datanor.httpclient.logger.sink.SegmentFormat.TYPE_REQUEST;
+import static ee.datanor.httpclient.logger.sink.SegmentFormat.TYPE_RESPONSE;
+
+/**
+ * Reads the segment files of a {@link MappedSegmentSink}. Reading stops at the end mark of a segment or at space that was
+ * not reserved yet. Records that were reserved but not completed, e.g. by a writer that died, are skipped.
+ * <p>
+ * Run {@code java -cp httpclient-logger.jar ee.datanor.httpclient.logger.sink.SegmentReader [--ndjson] <file or directory>...}
+ * to print the records as text or NDJSON lines.
+ */
+public final class SegmentReader {
+
+    private SegmentReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean ndjson = args.length > 0 && "--ndjson".equals(args[0]);
+        int first = ndjson ? 1 : 0;
+        if (args.length == first) {
+            System.err.println("Usage: SegmentReader [--ndjson] <segment file or directory>...");
+            return;
+        }
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        for (int i = first; i < args.length; i++) {
+            for (Path segment : listSegments(Path.of(args[i]))) {
+                read(segment, exchangeRecord -> out.println(ndjson ? exchangeRecord.toNdjson() : exchangeRecord.toText()));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * The segment files of a directory in the order they were written, or the file itself.
+     */
+    public static List<Path> listSegments(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> files = Files.list(path)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SegmentFormat.SUFFIX)).sorted().collect(Collectors.toList());
+        }
+    }
+
+    public static List<ExchangeRecord> readAll(Path path) throws IOException {
+        List<ExchangeRecord> records = new ArrayList<>();
+        for (Path segment : listSegments(path)) {
+            read(segment, records::add);
+        }
+        return records;
+    }
+
+    /**
+     * Passes the completed records of the segment to the consumer and returns their count.
+     */
+    public static int read(Path segment, Consumer<ExchangeRecord> consumer) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < 8 || buffer.getInt() != SegmentFormat.MAGIC) {
+            throw new IOException("Not a segment file: " + segment);
+        }
+        short version = buffer.getShort();
+        if (version != SegmentFormat.VERSION) {
+            throw new IOException("Unsupported segment version " + version + ": " + segment);
+        }
+        String[] keys = new String[buffer.getShort()];
+        for (int i = 0; i < keys.length; i++) {
+            int keyLength = buffer.getShort() & 0xffff;
+            keys[i] = string(buffer, buffer.position(), keyLength);
+            buffer.position(buffer.position() + keyLength);
+        }
+        try {
+            return readRecords(buffer, SegmentFormat.align(buffer.position()), keys, consumer);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt segment file: " + segment, e);
+        }
+    }
+
+    private static int readRecords(ByteBuffer buffer, int start, String[] keys, Consumer<ExchangeRecord> consumer) {
+        int count = 0;
+        int offset = start;
+        while (offset <= buffer.limit() - MIN_RECORD_LENGTH) {
+            int length = buffer.getInt(offset);
+            if (length < MIN_RECORD_LENGTH || length > buffer.limit() - offset) {
+                break;
+            }
+            int type = buffer.getInt(offset + 4);
+            if (type == TYPE_REQUEST || type == TYPE_RESPONSE) {
+                consumer.accept(decode(buffer, offset, length, type == TYPE_RESPONSE, keys));
+                count++;
+            }
+            offset += SegmentFormat.align(length);
+        }
+        return count;
+    }
+
+    private static ExchangeRecord decode(ByteBuffer buffer, int offset, int length, boolean response, String[] keys) {
+        long timestamp = buffer.getLong(offset + RECORD_HEADER);
+        Map<String, String> fields = new LinkedHashMap<>();
+        int position = offset + MIN_RECORD_LENGTH;
+        int end = offset + length;
+        while (position < end) {
+            int index = buffer.get(position++) & 0xff;
+            String key;
+            if (index == EXTRA_FIELD) {
+                int keyLength = buffer.getShort(position) & 0xffff;
+                key = string(buffer, position + 2, keyLength);
+                position += 2 + keyLength;
+            } else {
+                key = index < keys.length ? keys[index] : "HC_FIELD_" + index;
+            }
+            int valueLength = buffer.getInt(position);
+            fields.put(key, string(buffer, position + 4, valueLength));
+            position += 4 + valueLength;
+        }
+        return new ExchangeRecord(response, timestamp, fields);
+    }
+
+    private static String string(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.store;
+
+import ee.datanor.httpclient.logger.util.EscapeUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Append-only store of bodies addressed by the XXH64 hash of their captured bytes. Each body is written once as a line
+ * of the hash in hex, a tab and the escaped body, the record carries only the reference {@code xxh64:<hash>:<length>}.
+ * A bounded index of recently stored hashes decides what is already in the store, a body whose hash was evicted from
+ * the index, or that was stored concurrently, is written again.
+ * <p>
+ * The body is stored as rendered by the processor, decoded and masked. Share a store only between processors that have
+ * the same maskers.
+ */
+@Slf4j
+public final class BodyStore implements AutoCloseable {
+    public static final String REFERENCE_PREFIX = "xxh64:";
+    public static final int DEFAULT_INDEX_SIZE = 4096;
+    private static final int HASH_LENGTH = 16;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final AtomicLongArray index;
+    private final int mask;
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public BodyStore(Path file) throws IOException {
+        this(file, DEFAULT_INDEX_SIZE);
+    }
+
+    /**
+     * The index size is rounded up to a power of two.
+     */
+    public BodyStore(Path file, int indexSize) throws IOException {
+        int size = Integer.highestOneBit(Math.max(indexSize - 1, 1)) << 1;
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.index = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the reference of the body. The body is rendered and appended to the store only when its hash is not in the
+     * index. When it cannot be written the rendered body is returned instead of the reference.
+     */
+    public String store(long hash, int length, Supplier<String> body) {
+        int slot = (int) (hash ^ hash >>> 32) & mask;
+        if (hash != 0 && index.get(slot) == hash) {
+            deduplicated.increment();
+            return reference(hash, length);
+        }
+        String rendered = body.get();
+        try {
+            append(hash, rendered);
+        } catch (IOException e) {
+            failed.increment();
+            log.warn("Failed to write body to " + file + " - " + e.getMessage(), e);
+            return rendered;
+        }
+        index.set(slot, hash);
+        stored.increment();
+        return reference(hash, length);
+    }
+
+    private void append(long hash, String body) throws IOException {
+        StringBuilder line = new StringBuilder(body.length() + HASH_LENGTH + 2);
+        line.append(toHex(hash)).append('\t');
+        EscapeUtil.escape(body, line);
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(line.append('\n')));
+        synchronized (channel) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    public static String reference(long hash, int length) {
+        return REFERENCE_PREFIX + toHex(hash) + ":" + length;
+    }
+
+    /**
+     * Body of the reference in a store file, escaped as it was stored, or {@code null} when the file does not have it.
+     */
+    public static String find(Path file, String reference) throws IOException {
+        if (!reference.startsWith(REFERENCE_PREFIX) || reference.length() < REFERENCE_PREFIX.length() + HASH_LENGTH) {
+            throw new IllegalArgumentException("Not a body reference: " + reference);
+        }
+        String key = reference.substring(REFERENCE_PREFIX.length(), REFERENCE_PREFIX.length() + HASH_LENGTH) + "\t";
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line = reader.readLine();
+            while (line != null && !line.startsWith(key)) {
+                line = reader.readLine();
+            }
+            return line == null ? null : line.substring(key.length());
+        }
+    }
+
+    private static String toHex(long hash) {
+        String hex = Long.toHexString(hash);
+        return "0".repeat(HASH_LENGTH - hex.length()) + hex;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getStoredCount() {
+        return stored.sum();
+    }
+
+    /**
+     * Bodies that were found in the index and not written again.
+     */
+    public long getDeduplicatedCount() {
+        return deduplicated.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.timing;
+
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * Monotonic ({@link System#nanoTime()}) timestamps of one exchange, all relative to the start of the exchange.
+ */
+public final class ExchangeTiming {
+    public static final String ATTRIBUTE = "httpclient-logger.exchange-timing";
+    public static final long UNKNOWN = -1;
+
+    private final long startNanos;
+    private volatile long responseNanos = UNKNOWN;
+    private volatile long bodyEndNanos = UNKNOWN;
+
+    private ExchangeTiming(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    public static ExchangeTiming start(HttpContext context) {
+        ExchangeTiming timing = new ExchangeTiming(System.nanoTime());
+        context.setAttribute(ATTRIBUTE, timing);
+        return timing;
+    }
+
+    public static ExchangeTiming find(HttpContext context) {
+        if (context == null) {
+            return null;
+        }
+        Object timing = context.getAttribute(ATTRIBUTE);
+        return timing instanceof ExchangeTiming ? (ExchangeTiming) timing : null;
+    }
+
+    /**
+     * Marks the arrival of the response head, only the first call counts.
+     */
+    public void markResponse() {
+        if (responseNanos == UNKNOWN) {
+            responseNanos = elapsed();
+        }
+    }
+
+    /**
+     * Marks the end of the response body, only the first call counts.
+     */
+    public void markBodyEnd() {
+        if (bodyEndNanos == UNKNOWN) {
+            bodyEndNanos = elapsed();
+        }
+    }
+
+    public long getTimeToFirstByte() {
+        return responseNanos;
+    }
+
+    /**
+     * Time from the response head to the end of the body, {@link #UNKNOWN} until the body has been read.
+     */
+    public long getBodyTime() {
+        long response = responseNanos;
+        long bodyEnd = bodyEndNanos;
+        return response == UNKNOWN || bodyEnd == UNKNOWN ? UNKNOWN : bodyEnd - response;
+    }
+
+    /**
+     * Time to the end of the body if it has been read, to the response head otherwise, or so far while waiting for it.
+     */
+    public long getDuration() {
+        long bodyEnd = bodyEndNanos;
+        if (bodyEnd != UNKNOWN) {
+            return bodyEnd;
+        }
+        long response = responseNanos;
+        return response != UNKNOWN ? response : elapsed();
+    }
+
+    private long elapsed() {
+        return System.nanoTime() - startNanos;
+    }
+}
@@ -16,57 +16,244 @@
 
 package ee.datanor.httpclient.logger.util;
 
-import org.apache.commons.lang3.StringUtils;
-
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * Escapes backslash, C0 and C1 control characters in a single pass over a 256-entry replacement table. Values that need
+ * no escaping are returned as they are.
+ */
 public final class EscapeUtil {
 
-    private static String[] searchList = new String[] { "\b", "\n", "\t", "\f", "\r", "\\" };
-    private static String[] replacementList = new String[] { "\\b", "\\n", "\\t", "\\f", "\\r", "\\\\" };
+    /**
+     * Longest UTF-8 JSON escape of a single char, the six bytes of a C1 control character.
+     */
+    public static final int MAX_JSON_UTF8_BYTES = 6;
+
+    private static final int TABLE_SIZE = 256;
+    private static final byte[] UTF8_QUOTE = {'\\', '"'};
+    private static final String[] REPLACEMENTS = new String[TABLE_SIZE];
+    private static final byte[][] UTF8_REPLACEMENTS = new byte[TABLE_SIZE][];
+    private static final int UTF8_C1_LEAD = 0xc2;
 
     static {
-        List<String> search_list = new ArrayList<>();
-        List<String> replacement_list = new ArrayList<>();
+        for (int c = 0x00; c <= 0x1f; c++) {
+            REPLACEMENTS[c] = unicodeEscape(c);
+        }
+        for (int c = 0x7f; c <= 0x9f; c++) {
+            REPLACEMENTS[c] = unicodeEscape(c);
+        }
+        REPLACEMENTS['\b'] = "\\b";
+        REPLACEMENTS['\n'] = "\\n";
+        REPLACEMENTS['\t'] = "\\t";
+        REPLACEMENTS['\f'] = "\\f";
+        REPLACEMENTS['\r'] = "\\r";
+        REPLACEMENTS['\\'] = "\\\\";
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            if (REPLACEMENTS[c] != null) {
+                UTF8_REPLACEMENTS[c] = REPLACEMENTS[c].getBytes(StandardCharsets.US_ASCII);
+            }
+        }
+    }
 
-        List<String> existing_search_list = Arrays.asList(searchList);
+    private EscapeUtil() {
+    }
 
-        for (int i = 0x00; i <= 0x1f; i++) {
-            if (existing_search_list.contains(intToSingleCharString(i))) {
-                continue;
+    public static String escape(String val) {
+        if (val == null) {
+            return null;
+        }
+        int first = indexOfEscape(val);
+        if (first < 0) {
+            return val;
+        }
+        StringBuilder out = new StringBuilder(val.length() + 16);
+        out.append(val, 0, first);
+        appendEscaped(val, first, out);
+        return out.toString();
+    }
+
+    /**
+     * Appends the escaped value to the builder.
+     */
+    public static void escape(CharSequence val, StringBuilder out) {
+        int first = indexOfEscape(val);
+        if (first < 0) {
+            out.append(val);
+            return;
+        }
+        out.append(val, 0, first);
+        appendEscaped(val, first, out);
+    }
+
+    public static void escape(CharSequence val, Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            escape(val, (StringBuilder) out);
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < val.length(); i++) {
+            String replacement = replacement(val.charAt(i));
+            if (replacement != null) {
+                out.append(val, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(val, start, val.length());
+    }
+
+    /**
+     * Appends the value escaped for a JSON string, the same characters as {@link #escape(String)} and the double quote.
+     */
+    public static void escapeJson(CharSequence val, StringBuilder out) {
+        int start = 0;
+        for (int i = 0; i < val.length(); i++) {
+            char c = val.charAt(i);
+            String replacement = c == '"' ? "\\\"" : replacement(c);
+            if (replacement != null) {
+                out.append(val, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(val, start, val.length());
+    }
+
+    /**
+     * Encodes the value as UTF-8 escaped for a JSON string, the same characters as {@link #escapeJson}, into the array at
+     * the offset and returns the offset after it. The array must have room for {@link #MAX_JSON_UTF8_BYTES} per char.
+     * Unpaired surrogates are written as {@code ?}.
+     */
+    public static int escapeJsonUtf8(CharSequence val, byte[] out, int off) {
+        int pos = off;
+        int i = 0;
+        while (i < val.length()) {
+            char c = val.charAt(i++);
+            byte[] replacement = c == '"' ? UTF8_QUOTE : c < TABLE_SIZE ? UTF8_REPLACEMENTS[c] : null;
+            if (replacement != null) {
+                System.arraycopy(replacement, 0, out, pos, replacement.length);
+                pos += replacement.length;
+            } else if (c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (!Character.isSurrogate(c)) {
+                pos = encodeUtf8(c, out, pos);
+            } else if (isSurrogatePair(val, i - 1)) {
+                pos = encodeUtf8(Character.toCodePoint(c, val.charAt(i++)), out, pos);
+            } else {
+                out[pos++] = '?';
             }
-            search_list.add(intToSingleCharString(i));
-            replacement_list.add(intToSingleEscapedUnicodeCharString(i));
         }
+        return pos;
+    }
 
-        for (int i = 0x7f; i <= 0x9f; i++) {
-            search_list.add(intToSingleCharString(i));
-            replacement_list.add(intToSingleEscapedUnicodeCharString(i));
+    /**
+     * Escapes UTF-8 encoded text without decoding it, the same characters as {@link #escape(String)}. C1 control
+     * characters are the two byte sequences {@code C2 80..9F}. Returns the same array when nothing needs escaping.
+     */
+    public static byte[] escapeUtf8(byte[] utf8) {
+        if (indexOfEscapeUtf8(utf8, 0, utf8.length) < 0) {
+            return utf8;
         }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(utf8.length + 16);
+        try {
+            escapeUtf8(utf8, 0, utf8.length, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
 
-        search_list.addAll(Arrays.asList(searchList));
-        replacement_list.addAll(Arrays.asList(replacementList));
+    public static void escapeUtf8(byte[] utf8, int off, int len, OutputStream out) throws IOException {
+        int end = off + len;
+        int start = off;
+        int i = off;
+        while (i < end) {
+            int sequenceLength = escapedSequenceLength(utf8, i, end);
+            if (sequenceLength == 0) {
+                i++;
+                continue;
+            }
+            out.write(utf8, start, i - start);
+            out.write(UTF8_REPLACEMENTS[utf8[i + sequenceLength - 1] & 0xff]);
+            i += sequenceLength;
+            start = i;
+        }
+        out.write(utf8, start, end - start);
+    }
 
-        searchList = search_list.toArray(searchList);
-        replacementList = replacement_list.toArray(replacementList);
+    /**
+     * Index of the first byte that starts a sequence needing escaping, or -1.
+     */
+    public static int indexOfEscapeUtf8(byte[] utf8, int off, int len) {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (escapedSequenceLength(utf8, i, end) > 0) {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    private EscapeUtil() {
+    private static int escapedSequenceLength(byte[] utf8, int i, int end) {
+        int b = utf8[i] & 0xff;
+        if (b < 0x80) {
+            return UTF8_REPLACEMENTS[b] == null ? 0 : 1;
+        }
+        if (b == UTF8_C1_LEAD && i + 1 < end) {
+            int next = utf8[i + 1] & 0xff;
+            return next >= 0x80 && next <= 0x9f ? 2 : 0;
+        }
+        return 0;
     }
 
-    public static String escape(String val) {
-        return StringUtils.replaceEach(val, searchList, replacementList);
+    private static int indexOfEscape(CharSequence val) {
+        for (int i = 0; i < val.length(); i++) {
+            if (replacement(val.charAt(i)) != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void appendEscaped(CharSequence val, int from, StringBuilder out) {
+        for (int i = from; i < val.length(); i++) {
+            char c = val.charAt(i);
+            String replacement = replacement(c);
+            if (replacement == null) {
+                out.append(c);
+            } else {
+                out.append(replacement);
+            }
+        }
     }
 
-    private static String intToSingleCharString(int x) {
-        return String.format("%c", (char) x);
+    private static boolean isSurrogatePair(CharSequence val, int i) {
+        return Character.isHighSurrogate(val.charAt(i)) && i + 1 < val.length() && Character.isLowSurrogate(val.charAt(i + 1));
     }
 
-    private static String intToSingleEscapedUnicodeCharString(int x) {
-        return String.format("\\u00%02X", x);
+    private static int encodeUtf8(int codePoint, byte[] out, int off) {
+        int pos = off;
+        if (codePoint < 0x800) {
+            out[pos++] = (byte) (0xc0 | codePoint >>> 6);
+        } else if (codePoint < 0x10000) {
+            out[pos++] = (byte) (0xe0 | codePoint >>> 12);
+            out[pos++] = (byte) (0x80 | codePoint >>> 6 & 0x3f);
+        } else {
+            out[pos++] = (byte) (0xf0 | codePoint >>> 18);
+            out[pos++] = (byte) (0x80 | codePoint >>> 12 & 0x3f);
+            out[pos++] = (byte) (0x80 | codePoint >>> 6 & 0x3f);
+        }
+        out[pos++] = (byte) (0x80 | codePoint & 0x3f);
+        return pos;
     }
 
+    private static String replacement(char c) {
+        return c < TABLE_SIZE ? REPLACEMENTS[c] : null;
+    }
 
+    private static String unicodeEscape(int c) {
+        return String.format("\\u00%02X", c);
+    }
 }
@@ -16,17 +16,19 @@
 
 package ee.datanor.httpclient.logger.util;
 
-import org.apache.commons.text.RandomStringGenerator;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class HashUtil {
-    private static final RandomStringGenerator stringGenerator = new RandomStringGenerator.Builder()
-            .withinRange('0', 'z')
-            .filteredBy(Character::isLetterOrDigit)
-            .build();
+    private static final char[] ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
 
     private HashUtil() { }
 
     public static String generateHash(int length) {
-        return stringGenerator.generate(length);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] hash = new char[length];
+        for (int i = 0; i < length; i++) {
+            hash[i] = ALPHANUMERIC[random.nextInt(ALPHANUMERIC.length)];
+        }
+        return new String(hash);
     }
 }
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.util;
+
+import org.apache.hc.core5.http.Header;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Selects the logged headers by name, case-insensitively and without allocating, and writes them as
+ * {@code Name: value} lines. The names are compiled into an open addressing table once.
+ * <p>
+ * The value of a header is written according to its {@link ValuePolicy}. Values are split into {@code ;} separated
+ * items and only the secret part of an item is masked: the credential after the scheme of an {@code Authorization}
+ * header like {@code Bearer <token>}, the value of a {@code name=value} item of a {@code Cookie} or {@code Set-Cookie}
+ * header, otherwise the whole item. An item that does not have the expected form is masked as a whole.
+ */
+public final class HeaderSelector {
+    public static final String MASK = "***";
+    public static final int DEFAULT_PREFIX_LENGTH = 4;
+    private static final String HASH_ALGORITHM = "HmacSHA256";
+    private static final int HASH_BYTES = 8;
+    private static final byte[] PROCESS_HASH_KEY = new byte[32];
+
+    static {
+        new SecureRandom().nextBytes(PROCESS_HASH_KEY);
+    }
+
+    private final Map<String, ValuePolicy> policies;
+    private final int prefixLength;
+    private final byte[] hashKey;
+    private final ThreadLocal<Mac> macs;
+    private final String[] names;
+    private final ValuePolicy[] slotPolicies;
+    private final Split[] slotSplits;
+    private final int mask;
+
+    public enum ValuePolicy {
+        /**
+         * The value as it is.
+         */
+        FULL,
+        /**
+         * Only the mask.
+         */
+        MASKED,
+        /**
+         * The first {@code prefixLength} characters of each secret followed by the mask.
+         */
+        PREFIX,
+        /**
+         * {@code #} and the first 8 bytes of the HMAC-SHA256 of each secret in hex, to correlate records without logging
+         * the secret. The key is random per process unless set with {@link #withHashKey(byte[])}, so a hash can not be
+         * matched against precomputed hashes of guessed values.
+         */
+        HASH
+    }
+
+    /**
+     * Where the secret of a value item starts, depending on the header.
+     */
+    private enum Split {
+        /**
+         * After the {@code scheme } of the credentials.
+         */
+        SCHEME,
+        /**
+         * After the {@code name=} of a cookie, the name being a token.
+         */
+        COOKIE,
+        NONE;
+
+        private static Split of(String name) {
+            if ("authorization".equals(name) || "proxy-authorization".equals(name)) {
+                return SCHEME;
+            }
+            return "cookie".equals(name) || "set-cookie".equals(name) ? COOKIE : NONE;
+        }
+
+        /**
+         * Start of the secret, the start of the item when the item does not have the expected form.
+         */
+        private int secretStart(String value, int start, int end) {
+            int from = start;
+            while (from < end && value.charAt(from) == ' ') {
+                from++;
+            }
+            if (this == NONE) {
+                return from;
+            }
+            int i = from;
+            while (i < end && isTokenChar(value.charAt(i))) {
+                i++;
+            }
+            char separator = this == SCHEME ? ' ' : '=';
+            return i > from && i < end && value.charAt(i) == separator ? i + 1 : from;
+        }
+
+        private static boolean isTokenChar(char c) {
+            return c > ' ' && c < 127 && "()<>@,;:\\\"/[]?={}".indexOf(c) < 0;
+        }
+    }
+
+    private HeaderSelector(Map<String, ValuePolicy> policies, int prefixLength, byte[] hashKey) {
+        this.policies = policies;
+        this.prefixLength = prefixLength;
+        this.hashKey = hashKey;
+        this.macs = ThreadLocal.withInitial(() -> newMac(hashKey));
+        int size = Integer.highestOneBit(Math.max(policies.size(), 1) * 2 - 1) << 1;
+        this.names = new String[size];
+        this.slotPolicies = new ValuePolicy[size];
+        this.slotSplits = new Split[size];
+        this.mask = size - 1;
+        policies.forEach((name, policy) -> {
+            int slot = hash(name) & mask;
+            while (names[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            names[slot] = name;
+            slotPolicies[slot] = policy;
+            slotSplits[slot] = Split.of(name);
+        });
+    }
+
+    /**
+     * Selects the headers by name, all of them logged in full.
+     */
+    public static HeaderSelector of(Collection<String> includedHeaders) {
+        Map<String, ValuePolicy> policies = new LinkedHashMap<>();
+        includedHeaders.forEach(name -> policies.put(name.toLowerCase(Locale.ROOT), ValuePolicy.FULL));
+        return new HeaderSelector(policies, DEFAULT_PREFIX_LENGTH, PROCESS_HASH_KEY);
+    }
+
+    /**
+     * Selects the header, if not selected yet, and writes its value according to the policy.
+     */
+    public HeaderSelector withPolicy(String name, ValuePolicy policy) {
+        Map<String, ValuePolicy> selected = new LinkedHashMap<>(policies);
+        selected.put(name.toLowerCase(Locale.ROOT), policy);
+        return new HeaderSelector(selected, prefixLength, hashKey);
+    }
+
+    public HeaderSelector withPrefixLength(int length) {
+        return new HeaderSelector(policies, length, hashKey);
+    }
+
+    /**
+     * Sets the key of the {@link ValuePolicy#HASH} values, for hashes that can be correlated across processes. The key
+     * has to be kept as secret as the hashed values.
+     */
+    public HeaderSelector withHashKey(byte[] key) {
+        return new HeaderSelector(policies, prefixLength, key.clone());
+    }
+
+    public boolean isSelected(String name) {
+        return slot(name) >= 0;
+    }
+
+    public String select(Header[] headers) {
+        StringBuilder out = new StringBuilder(64 * Math.min(headers.length, 8));
+        appendTo(headers, out);
+        return out.toString();
+    }
+
+    /**
+     * Appends the selected headers as {@code Name: value} lines separated by {@code \n}.
+     */
+    public void appendTo(Header[] headers, StringBuilder out) {
+        boolean first = true;
+        for (Header header : headers) {
+            int slot = slot(header.getName());
+            if (slot < 0) {
+                continue;
+            }
+            if (!first) {
+                out.append('\n');
+            }
+            first = false;
+            out.append(header.getName()).append(": ");
+            appendValue(header.getValue(), slotPolicies[slot], slotSplits[slot], out);
+        }
+    }
+
+    private void appendValue(String value, ValuePolicy policy, Split split, StringBuilder out) {
+        if (value == null || policy == ValuePolicy.FULL) {
+            out.append(value);
+        } else if (policy == ValuePolicy.MASKED) {
+            out.append(MASK);
+        } else {
+            int start = 0;
+            while (start <= value.length()) {
+                int end = value.indexOf(';', start);
+                end = end < 0 ? value.length() : end;
+                appendItem(value, start, end, policy, split, out);
+                if (end < value.length()) {
+                    out.append(';');
+                }
+                start = end + 1;
+            }
+        }
+    }
+
+    private void appendItem(String value, int start, int end, ValuePolicy policy, Split split, StringBuilder out) {
+        int secret = split.secretStart(value, start, end);
+        out.append(value, start, secret);
+        if (secret == end) {
+            return;
+        }
+        if (policy == ValuePolicy.HASH) {
+            byte[] digest = macs.get().doFinal(value.substring(secret, end).getBytes(StandardCharsets.UTF_8));
+            out.append('#').append(HexFormat.of().formatHex(digest, 0, HASH_BYTES));
+        } else if (end - secret <= prefixLength) {
+            out.append(MASK);
+        } else {
+            out.append(value, secret, secret + prefixLength).append(MASK);
+        }
+    }
+
+    private static Mac newMac(byte[] key) {
+        try {
+            Mac mac = Mac.getInstance(HASH_ALGORITHM);
+            mac.init(new SecretKeySpec(key, HASH_ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialize " + HASH_ALGORITHM, e);
+        }
+    }
+
+    private int slot(String name) {
+        int slot = hash(name) & mask;
+        String candidate = names[slot];
+        while (candidate != null) {
+            if (candidate.length() == name.length() && candidate.regionMatches(true, 0, name, 0, name.length())) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+            candidate = names[slot];
+        }
+        return -1;
+    }
+
+    /**
+     * Hash of the name with ASCII letters lower-cased.
+     */
+    private static int hash(String name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            hash = 31 * hash + (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+        }
+        return hash ^ hash >>> 16;
+    }
+}
@@ -18,21 +18,16 @@ package ee.datanor.httpclient.logger.util;
 
 import org.apache.hc.core5.http.Header;
 
-import java.util.Arrays;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 public class HeaderUtil {
 
     private HeaderUtil() { }
 
+    /**
+     * Compiles the names on every call, keep a {@link HeaderSelector} instead when the names do not change.
+     */
     public static String headersToString(Header[] headers, Set<String> includedHeaders) {
-        return Arrays.stream(headers)
-                .filter(h -> includedHeaders.contains(h.getName().toLowerCase()))
-                .map(h -> {
-                    String value = h.getValue();
-                    return String.format("%s: %s", h.getName(), value);
-                })
-                .collect(Collectors.joining("\n"));
+        return HeaderSelector.of(includedHeaders).select(headers);
     }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.util;
+
+import org.apache.hc.client5.http.RouteInfo;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+public class RouteUtil {
+
+    private RouteUtil() { }
+
+    /**
+     * Target host of the route on the context, {@code null} before the route is known.
+     */
+    public static HttpHost getTargetHost(HttpContext context) {
+        if (context == null) {
+            return null;
+        }
+        Object route = context.getAttribute(HttpClientContext.HTTP_ROUTE);
+        return route instanceof RouteInfo ? ((RouteInfo) route).getTargetHost() : null;
+    }
+
+    /**
+     * Path of the request without the query and fragment, they may contain sensitive parameters.
+     */
+    public static String getPath(HttpRequest request) {
+        String path = request.getPath();
+        if (path == null) {
+            return null;
+        }
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '?' || c == '#') {
+                return path.substring(0, i);
+            }
+        }
+        return path;
+    }
+}
@@ -17,41 +17,85 @@
 
 package ee.datanor.httpclient.logger;
 
+import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
 import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import ee.datanor.httpclient.logger.async.AsyncHttpClientLoggerExecHandler;
+import ee.datanor.httpclient.logger.classic.HttpClientLoggerExecHandler;
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
+import ee.datanor.httpclient.logger.metrics.ProcessorMetrics;
+import ee.datanor.httpclient.logger.metrics.ProcessorSnapshot;
 import ee.datanor.httpclient.logger.processor.RequestLogProcessor;
 import ee.datanor.httpclient.logger.processor.ResponseLogProcessor;
 import ee.datanor.httpclient.logger.processor.request.RequestBodyLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestCorrelationIdLogProcessor;
 import ee.datanor.httpclient.logger.processor.request.RequestHashLogProcessor;
 import ee.datanor.httpclient.logger.processor.request.RequestHeadersLogProcessor;
 import ee.datanor.httpclient.logger.processor.request.RequestLineLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestRouteLogProcessor;
 import ee.datanor.httpclient.logger.processor.request.RequestTimeLogProcessor;
 import ee.datanor.httpclient.logger.processor.response.ResponseBodyLogProcessor;
+import ee.datanor.httpclient.logger.processor.response.ResponseDurationLogProcessor;
 import ee.datanor.httpclient.logger.processor.response.ResponseHeadersLogProcessor;
 import ee.datanor.httpclient.logger.processor.response.ResponseStatusLogProcessor;
+import ee.datanor.httpclient.logger.sampling.LogSampler;
+import ee.datanor.httpclient.logger.sampling.TailPolicy;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.EntityDetails;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
+import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.MDC;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
 import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.serverError;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @WireMockTest
 public class HttpClientLoggerTest {
@@ -83,13 +127,14 @@ public class HttpClientLoggerTest {
         int port = wmRuntimeInfo.getHttpPort();
 
         // when
-        executeDefaultGetWithLogger(port);
+        LogEvent event = executeDefaultGetWithLogger(port);
 
         // then
-        assertNotNull(MDC.get("HC_REQUEST_HASH"));
-        assertNotNull(MDC.get("HC_REQUEST_TIME"));
-        assertEquals("GET " + "http://localhost:" + port + "/exec", MDC.get("HC_REQUEST_LINE"));
-        assertEquals("-", MDC.get("HC_REQUEST_BODY"));
+        assertNotNull(event.get(LogField.REQUEST_HASH));
+        assertNotNull(event.get(LogField.REQUEST_TIME));
+        assertEquals("GET " + "http://localhost:" + port + "/exec", event.getText("HC_REQUEST_LINE"));
+        assertEquals("-", event.getText("HC_REQUEST_BODY"));
+        assertNull(MDC.get("HC_REQUEST_LINE"));
     }
 
     @Test
@@ -98,22 +143,312 @@ public class HttpClientLoggerTest {
         int port = wmRuntimeInfo.getHttpPort();
 
         // when
-        executeDefaultGetWithLogger(port);
+        LogEvent event = executeDefaultGetWithLogger(port);
 
         // then
-        assertEquals("200", MDC.get("HC_RESPONSE_STATUS"));
-        assertEquals("8", MDC.get("HC_RESPONSE_BODY_LENGTH"));
-        assertEquals("[\"test\"]", MDC.get("HC_RESPONSE_BODY"));
+        assertEquals(200, event.get(LogField.RESPONSE_STATUS));
+        assertEquals("200", event.getText("HC_RESPONSE_STATUS"));
+        assertEquals("8", event.getText("HC_RESPONSE_BODY_LENGTH"));
+        assertEquals("[\"test\"]", event.getText("HC_RESPONSE_BODY"));
     }
 
-    private void executeDefaultGetWithLogger(int port) throws IOException {
+    @Test
+    void shouldLogStreamedResponseBodyPrefixWhenConsumed(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+        // given
+        int port = wmRuntimeInfo.getHttpPort();
+        HttpClientLogger streamingLogger = new HttpClientLogger(List.of(new RequestLineLogProcessor()),
+                List.of(new ResponseBodyLogProcessor(4, Set.of("json"), Set.of(), ResponseBodyLogProcessor.CaptureMode.STREAMING)));
+        stubFor(get("/stream").willReturn(ok().withBody("[\"test\"]").withHeader("Content-Type", "application/json")));
+        HttpClientContext context = HttpClientContext.create();
+
+        // when
+        String body = executeRequest(streamingLogger, new HttpGet("http://localhost:" + port + "/stream"), context, false);
+
+        // then
+        assertEquals("[\"test\"]", body);
+        LogEvent event = LogEvent.find(context);
+        assertEquals("[\"te", event.getText("HC_RESPONSE_BODY"));
+        assertEquals("4", event.getText("HC_RESPONSE_BODY_LENGTH"));
+    }
+
+    @Test
+    void shouldLogStreamedGzipResponseBodyPrefix(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+        // given
+        int port = wmRuntimeInfo.getHttpPort();
+        HttpClientLogger streamingLogger = new HttpClientLogger(List.of(new RequestLineLogProcessor()),
+                List.of(new ResponseBodyLogProcessor(12, Set.of("json"), Set.of(), ResponseBodyLogProcessor.CaptureMode.STREAMING)));
+        String responseBody = "[\"" + "test".repeat(200) + "\"]";
+        stubFor(get("/gzip").willReturn(ok().withBody(responseBody).withHeader("Content-Type", "application/json")));
+        HttpClientContext context = HttpClientContext.create();
+
+        // when
+        String body = executeRequest(streamingLogger, new HttpGet("http://localhost:" + port + "/gzip"), context, true);
+
+        // then
+        assertEquals(responseBody, body);
+        assertEquals("[\"testtestte", LogEvent.find(context).getText("HC_RESPONSE_BODY"));
+    }
+
+    @Test
+    void shouldLogRepeatableRequestBodyPrefix(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+        // given
+        int port = wmRuntimeInfo.getHttpPort();
+        stubFor(post("/upload").willReturn(ok()));
+        HttpPost httpPost = new HttpPost("http://localhost:" + port + "/upload");
+        httpPost.setEntity(new StringEntity("{\"name\":\"test\"}", ContentType.APPLICATION_JSON));
+        HttpClientLogger bodyLogger = new HttpClientLogger(List.of(new RequestBodyLogProcessor(8, Set.of())), List.of());
+
+        HttpClientContext context = HttpClientContext.create();
+
+        // when
+        executeRequest(bodyLogger, httpPost, context, true);
+
+        // then
+        assertEquals("{\"name\":", LogEvent.find(context).getText("HC_REQUEST_BODY"));
+    }
+
+    @Test
+    void shouldLogNonRepeatableRequestBodyPrefixWhileWritten(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+        // given
+        int port = wmRuntimeInfo.getHttpPort();
+        String requestBody = "{\"name\":\"" + "test".repeat(1000) + "\"}";
+        stubFor(post("/upload").willReturn(ok()));
+        HttpPost httpPost = new HttpPost("http://localhost:" + port + "/upload");
+        httpPost.setEntity(new InputStreamEntity(new ByteArrayInputStream(requestBody.getBytes(StandardCharsets.UTF_8)), ContentType.APPLICATION_JSON));
+        HttpClientLogger bodyLogger = new HttpClientLogger(List.of(new RequestBodyLogProcessor(12, Set.of())), List.of());
+        HttpClientContext context = HttpClientContext.create();
+
+        // when
+        executeRequest(bodyLogger, httpPost, context, true);
+
+        // then
+        verify(postRequestedFor(urlEqualTo("/upload")).withRequestBody(equalTo(requestBody)));
+        assertEquals("{\"name\":\"tes", LogEvent.find(context).getText("HC_REQUEST_BODY"));
+    }
+
+    @Test
+    void shouldLogExchangeDurationsFromExecHandler(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+        // given
+        int port = wmRuntimeInfo.getHttpPort();
+        HttpClientLogger timingLogger = new HttpClientLogger(List.of(new RequestLineLogProcessor()), List.of(new ResponseDurationLogProcessor(),
+                new ResponseBodyLogProcessor(4, Set.of("json"), Set.of(), ResponseBodyLogProcessor.CaptureMode.STREAMING)));
+        stubFor(get("/timed").willReturn(ok().withBody("[\"test\"]").withHeader("Content-Type", "application/json")));
+        HttpClientContext context = HttpClientContext.create();
+        MDC.clear();
+
+        // when
+        String body;
+        try (CloseableHttpClient httpClient = HttpClientBuilder.create()
+                .addExecInterceptorAfter(ChainElement.PROTOCOL.name(), "httpclient-logger", new HttpClientLoggerExecHandler(timingLogger))
+                .build()) {
+            body = httpClient.execute(new HttpGet("http://localhost:" + port + "/timed"), context, (response) -> EntityUtils.toString(response.getEntity()));
+        }
+
+        // then
+        assertEquals("[\"test\"]", body);
+        LogEvent event = LogEvent.find(context);
+        double duration = Double.parseDouble(event.getText("HC_RESPONSE_DURATION"));
+        double bodyTime = Double.parseDouble(event.getText("HC_RESPONSE_BODY_TIME"));
+        assertTrue(duration > 0);
+        assertTrue(bodyTime >= 0 && bodyTime <= duration);
+        assertEquals("[\"te", event.getText("HC_RESPONSE_BODY"));
+        assertNull(MDC.get("HC_REQUEST_LINE"));
+    }
+
+    @Test
+    void shouldLogAsyncExchangeBodiesWithoutTouchingCallerContext(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+        // given
+        int port = wmRuntimeInfo.getHttpPort();
+        String requestBody = "{\"name\":\"" + "test".repeat(1000) + "\"}";
+        stubFor(post("/async").willReturn(ok().withBody("[\"test\"]").withHeader("Content-Type", "application/json")));
+        HttpClientLogger asyncLogger = new HttpClientLogger(List.of(new RequestLineLogProcessor(), new RequestBodyLogProcessor(12, Set.of())),
+                List.of(new ResponseStatusLogProcessor(), new ResponseBodyLogProcessor(4, Set.of("json"), Set.of())));
+        HttpClientContext context = HttpClientContext.create();
+        SimpleHttpRequest request = SimpleRequestBuilder.post("http://localhost:" + port + "/async")
+                .setBody(requestBody, ContentType.APPLICATION_JSON)
+                .build();
+        MDC.clear();
+
+        // when
+        SimpleHttpResponse response;
+        try (CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+                .addExecInterceptorAfter(ChainElement.PROTOCOL.name(), "httpclient-logger", new AsyncHttpClientLoggerExecHandler(asyncLogger))
+                .build()) {
+            httpClient.start();
+            response = httpClient.execute(request, context, null).get(10, TimeUnit.SECONDS);
+        }
+
+        // then
+        assertEquals("[\"test\"]", response.getBodyText());
+        verify(postRequestedFor(urlEqualTo("/async")).withRequestBody(equalTo(requestBody)));
+        assertEquals("{\"name\":\"tes", LogEvent.find(context).getText("HC_REQUEST_BODY"));
+        LogEvent event = LogEvent.find(context);
+        assertEquals("[\"te", event.getText("HC_RESPONSE_BODY"));
+        assertEquals("4", event.getText("HC_RESPONSE_BODY_LENGTH"));
+        assertNull(MDC.get("HC_REQUEST_LINE"));
+    }
+
+    @Test
+    void shouldLogRouteTemplate(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+        // given
+        int port = wmRuntimeInfo.getHttpPort();
+        stubFor(get(urlPathEqualTo("/users/42/orders/7")).willReturn(ok()));
+        HttpClientLogger routeLogger = new HttpClientLogger(List.of(new RequestLineLogProcessor(), new RequestRouteLogProcessor()), List.of());
+        HttpClientContext context = HttpClientContext.create();
+
+        // when
+        executeRequest(routeLogger, new HttpGet("http://localhost:" + port + "/users/42/orders/7?token=secret"), context, true);
+
+        // then
+        assertEquals("GET /users/{id}/orders/{id}", LogEvent.find(context).getText("HC_REQUEST_ROUTE"));
+    }
+
+    @Test
+    void shouldSkipProcessorsForUnsampledExchange(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+        // given
+        int port = wmRuntimeInfo.getHttpPort();
+        stubFor(get("/health").willReturn(ok().withBody("[\"ok\"]").withHeader("Content-Type", "application/json")));
+        HttpClientLogger sampledLogger = HttpClientLogger.builder()
+                .requestLogProcessors(List.of(new RequestLineLogProcessor()))
+                .responseLogProcessors(List.of(new ResponseBodyLogProcessor()))
+                .sampler(LogSampler.rate(1).withPathPrefixRate("/health", 0).withSummary(true))
+                .build();
+        HttpClientContext context = HttpClientContext.create();
+
+        // when
+        String body = executeRequest(sampledLogger, new HttpGet("http://localhost:" + port + "/health"), context, true);
+
+        // then
+        assertEquals("[\"ok\"]", body);
+        assertNull(LogEvent.find(context));
+        assertNull(context.getAttribute(HttpClientLogger.UNSAMPLED_ATTRIBUTE));
+    }
+
+    @Test
+    void shouldPropagateCorrelationIdForUnsampledExchange(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+        // given
+        int port = wmRuntimeInfo.getHttpPort();
+        stubFor(get("/health").willReturn(ok().withBody("[\"ok\"]").withHeader("Content-Type", "application/json")));
+        HttpClientLogger sampledLogger = HttpClientLogger.builder()
+                .requestLogProcessors(List.of(new RequestCorrelationIdLogProcessor(null, RequestCorrelationIdLogProcessor.Propagation.HEADER),
+                        new RequestLineLogProcessor()))
+                .responseLogProcessors(List.of(new ResponseStatusLogProcessor()))
+                .sampler(LogSampler.rate(0))
+                .build();
+        HttpClientContext context = HttpClientContext.create();
+
+        // when
+        executeRequest(sampledLogger, new HttpGet("http://localhost:" + port + "/health"), context, true);
+
+        // then
+        assertNull(LogEvent.find(context));
+        verify(getRequestedFor(urlEqualTo("/health")).withHeader(RequestCorrelationIdLogProcessor.CORRELATION_ID_HEADER, matching("[0-9a-z]{15}")));
+    }
+
+    @Test
+    void shouldLogBodiesOnlyForExchangesKeptByTailPolicy(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+        // given
+        int port = wmRuntimeInfo.getHttpPort();
+        stubFor(post("/tail/ok").willReturn(ok().withBody("[\"ok\"]").withHeader("Content-Type", "application/json")));
+        stubFor(post("/tail/error").willReturn(serverError().withBody("[\"error\"]").withHeader("Content-Type", "application/json")));
+        HttpClientLogger tailLogger = HttpClientLogger.builder()
+                .requestLogProcessors(List.of(new RequestLineLogProcessor(), new RequestBodyLogProcessor(2048, Set.of())))
+                .responseLogProcessors(List.of(new ResponseStatusLogProcessor(), new ResponseBodyLogProcessor()))
+                .tailPolicy(TailPolicy.errorsOrSlowerThan(Duration.ofMinutes(1)))
+                .build();
+        HttpClientContext okContext = HttpClientContext.create();
+        HttpClientContext errorContext = HttpClientContext.create();
+
+        // when
+        executeRequest(tailLogger, createJsonPost("http://localhost:" + port + "/tail/ok"), okContext, true);
+        executeRequest(tailLogger, createJsonPost("http://localhost:" + port + "/tail/error"), errorContext, true);
+
+        // then
+        LogEvent okEvent = LogEvent.find(okContext);
+        assertEquals("200", okEvent.getText("HC_RESPONSE_STATUS"));
+        assertEquals("-", okEvent.getText("HC_REQUEST_BODY"));
+        assertEquals("-", okEvent.getText("HC_RESPONSE_BODY"));
+        LogEvent errorEvent = LogEvent.find(errorContext);
+        assertEquals("{\"name\":\"test\"}", errorEvent.getText("HC_REQUEST_BODY"));
+        assertEquals("[\"error\"]", errorEvent.getText("HC_RESPONSE_BODY"));
+        assertNull(errorContext.getAttribute(HttpClientLogger.TAIL_ATTRIBUTE));
+    }
+
+    @Test
+    void shouldWriteHeldRequestOfExchangeWithoutResponseWhenNextExchangeStarts(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+        // given
+        int port = wmRuntimeInfo.getHttpPort();
+        stubFor(post("/tail/failed").willReturn(aResponse().withFault(Fault.EMPTY_RESPONSE)));
+        stubFor(get("/tail/next").willReturn(ok()));
+        List<String> records = new CopyOnWriteArrayList<>();
+        HttpClientLogger tailLogger = HttpClientLogger.builder()
+                .requestLogProcessors(List.of(new RequestLineLogProcessor()))
+                .responseLogProcessors(List.of(new ResponseStatusLogProcessor()))
+                .tailPolicy(TailPolicy.errorsOrSlowerThan(Duration.ofMinutes(1)))
+                .recordSink((event, response) -> records.add((response ? "RES " : "REQ ") + event.getText("HC_REQUEST_LINE")))
+                .build();
+        HttpClientContext context = HttpClientContext.create();
+
+        // when
+        assertThrows(IOException.class, () -> executeRequest(tailLogger, createJsonPost("http://localhost:" + port + "/tail/failed"), context, true));
+        executeRequest(tailLogger, new HttpGet("http://localhost:" + port + "/tail/next"), context, true);
+
+        // then
+        assertEquals(List.of("REQ POST http://localhost:" + port + "/tail/failed", "REQ GET http://localhost:" + port + "/tail/next",
+                "RES GET http://localhost:" + port + "/tail/next"), records);
+        assertNull(context.getAttribute(HttpClientLogger.TAIL_ATTRIBUTE));
+    }
+
+    @Test
+    void shouldRecordProcessorOverhead(WireMockRuntimeInfo wmRuntimeInfo) throws IOException {
+        // given
+        int port = wmRuntimeInfo.getHttpPort();
+        stubFor(post("/overhead").willReturn(ok().withBody("[\"ok\"]").withHeader("Content-Type", "application/json")));
+        ProcessorMetrics processorMetrics = new ProcessorMetrics();
+        HttpClientLogger instrumentedLogger = HttpClientLogger.builder()
+                .requestLogProcessors(List.of(new RequestLineLogProcessor(), new RequestBodyLogProcessor(2048, Set.of())))
+                .responseLogProcessors(List.of(new ResponseBodyLogProcessor()))
+                .processorMetrics(processorMetrics)
+                .build();
+        HttpClientContext context = HttpClientContext.create();
+
+        // when
+        executeRequest(instrumentedLogger, createJsonPost("http://localhost:" + port + "/overhead"), context, true);
+        LogEvent event = LogEvent.find(context);
+        event.getText("HC_REQUEST_BODY");
+        event.getText("HC_RESPONSE_BODY");
+        Map<String, ProcessorSnapshot> snapshots = processorMetrics.snapshotAndReset().stream()
+                .collect(Collectors.toMap(ProcessorSnapshot::getProcessor, Function.identity()));
+
+        // then
+        assertEquals(3, snapshots.size());
+        assertEquals(1, snapshots.get(RequestLineLogProcessor.class.getName()).getProcessing().getCount());
+        assertEquals(0, snapshots.get(RequestLineLogProcessor.class.getName()).getRendering().getCount());
+        ProcessorSnapshot requestBody = snapshots.get(RequestBodyLogProcessor.class.getName());
+        assertEquals(1, requestBody.getRendering().getCount());
+        assertEquals(15, requestBody.getCapturedBytes());
+        assertEquals(15, requestBody.getDecodedChars());
+        assertEquals(0, requestBody.getMaskedChars());
+        assertEquals(6, snapshots.get(ResponseBodyLogProcessor.class.getName()).getDecodedChars());
+        assertTrue(processorMetrics.snapshot().stream().allMatch(snapshot -> snapshot.getProcessing().getCount() == 0));
+    }
+
+    private static HttpPost createJsonPost(String uri) {
+        HttpPost httpPost = new HttpPost(uri);
+        httpPost.setEntity(new StringEntity("{\"name\":\"test\"}", ContentType.APPLICATION_JSON));
+        return httpPost;
+    }
+
+    private LogEvent executeDefaultGetWithLogger(int port) throws IOException {
         stubFor(get("/exec").willReturn(ok().withBody("[\"test\"]").withHeader("Content-Type", "application/json").withHeader("X-Res-Test", "test")));
         HttpGet httpGet = new HttpGet("http://localhost:" + port + "/exec");
         httpGet.addHeader("X-Req-Test", "test");
-        executeRequest(httpClientLogger, httpGet);
+        HttpClientContext context = HttpClientContext.create();
+        executeRequest(httpClientLogger, httpGet, context);
+        return LogEvent.find(context);
     }
 
-    private void executeRequest(HttpClientLogger httpClientLogger, ClassicHttpRequest httpRequest) throws IOException {
+    private void executeRequest(HttpClientLogger httpClientLogger, ClassicHttpRequest httpRequest, HttpClientContext httpClientContext) throws IOException {
 
         try (CloseableHttpClient httpclient = HttpClientBuilder.create()
                 .addRequestInterceptorLast((HttpRequest request, EntityDetails entityDetails, HttpContext context) -> {
@@ -123,11 +458,29 @@ public class HttpClientLoggerTest {
                     httpClientLogger.logResponse(response, context);
                 }).build()) {
 
-            httpclient.execute(httpRequest, (httpResponse) -> {
+            httpclient.execute(httpRequest, httpClientContext, (httpResponse) -> {
                 HttpEntity entity = httpResponse.getEntity();
                 EntityUtils.consume(entity);
                 return null;
             });
         }
     }
+
+    private String executeRequest(HttpClientLogger httpClientLogger, ClassicHttpRequest httpRequest, HttpClientContext context,
+                                  boolean contentCompression) throws IOException {
+        HttpClientBuilder httpClientBuilder = HttpClientBuilder.create();
+        if (!contentCompression) {
+            httpClientBuilder.disableContentCompression();
+        }
+        try (CloseableHttpClient httpclient = httpClientBuilder
+                .addRequestInterceptorLast((HttpRequest request, EntityDetails entityDetails, HttpContext httpContext) -> {
+                    httpClientLogger.cleanup();
+                    httpClientLogger.logRequest(request, httpContext);
+                }).addResponseInterceptorLast((HttpResponse response, EntityDetails entityDetails, HttpContext httpContext) -> {
+                    httpClientLogger.logResponse(response, httpContext);
+                }).build()) {
+
+            return httpclient.execute(httpRequest, context, (httpResponse) -> EntityUtils.toString(httpResponse.getEntity()));
+        }
+    }
 }
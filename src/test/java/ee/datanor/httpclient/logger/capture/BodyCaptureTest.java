@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.capture;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BodyCaptureTest {
+
+    private static final String BODY = "{\"name\":\"õun\",\"items\":[1,2,3,4,5,6,7,8,9,10]}";
+
+    @Test
+    void shouldKeepOnlyPrefixAndCountTotal() {
+        // given
+        BodyCapture capture = new BodyCapture(8);
+        byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+
+        // when
+        capture.capture(bytes, 0, 5);
+        capture.capture(bytes, 5, bytes.length - 5);
+
+        // then
+        assertEquals("{\"name\":", capture.decode(StandardCharsets.UTF_8));
+        assertEquals(bytes.length, capture.getTotalLength());
+    }
+
+    @Test
+    void shouldNotDecodeIncompleteTrailingCharacter() {
+        // given
+        BodyCapture capture = new BodyCapture(10);
+        byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+
+        // when
+        capture.capture(bytes, 0, bytes.length);
+
+        // then
+        assertEquals("{\"name\":\"", capture.decode(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldInflateGzipPrefixFedByteByByte() throws IOException {
+        // given
+        BodyCapture capture = new BodyCapture(16, new GzipContentDecoder());
+        byte[] gzip = gzipWithOptionalHeaderFields(BODY.getBytes(StandardCharsets.UTF_8));
+
+        // when
+        for (byte b : gzip) {
+            capture.capture(b);
+        }
+
+        // then
+        assertEquals(BODY.substring(0, 15), capture.decode(StandardCharsets.UTF_8));
+        assertEquals(gzip.length, capture.getTotalLength());
+    }
+
+    @Test
+    void shouldInflateWholeGzipBodyWithinLimit() throws IOException {
+        // given
+        BodyCapture capture = new BodyCapture(1024, new GzipContentDecoder());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(BODY.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // when
+        capture.capture(out.toByteArray(), 0, out.size());
+
+        // then
+        assertEquals(BODY, capture.decode(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldInflateZlibAndRawDeflate() throws IOException {
+        for (boolean nowrap : new boolean[] {false, true}) {
+            // given
+            BodyCapture capture = new BodyCapture(1024, new DeflateContentDecoder());
+            byte[] deflated = deflate(BODY.getBytes(StandardCharsets.UTF_8), nowrap);
+
+            // when
+            capture.capture(deflated, 0, 1);
+            capture.capture(deflated, 1, deflated.length - 1);
+
+            // then
+            assertEquals(BODY, capture.decode(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void shouldKeepDecodedPrefixOfCorruptStream() {
+        // given
+        BodyCapture capture = new BodyCapture(1024, new GzipContentDecoder());
+        byte[] notGzip = BODY.getBytes(StandardCharsets.UTF_8);
+
+        // when
+        capture.capture(notGzip, 0, notGzip.length);
+
+        // then
+        assertEquals("", capture.decode(StandardCharsets.UTF_8));
+        assertTrue(capture.getTotalLength() > 0);
+    }
+
+    private static byte[] gzipWithOptionalHeaderFields(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // magic, deflate, FEXTRA | FNAME | FCOMMENT, mtime, xfl, os
+        out.write(new byte[] {0x1f, (byte) 0x8b, 8, 4 | 8 | 16, 0, 0, 0, 0, 0, 3});
+        out.write(new byte[] {3, 0, 'a', 'b', 'c'});
+        out.write("body.json\0".getBytes(StandardCharsets.ISO_8859_1));
+        out.write("comment\0".getBytes(StandardCharsets.ISO_8859_1));
+        out.write(deflate(content, true));
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] content, boolean nowrap) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap))) {
+            deflater.write(content);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.correlation;
+
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
+import ee.datanor.httpclient.logger.processor.request.RequestCorrelationIdLogProcessor;
+import ee.datanor.httpclient.logger.processor.request.RequestCorrelationIdLogProcessor.Propagation;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CorrelationIdGeneratorTest {
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+    }
+
+    @Test
+    void shouldGenerateTimeOrderedIdsWithNode() {
+        // given
+        CorrelationIdGenerator generator = new CorrelationIdGenerator(CorrelationIdGenerator.MAX_NODE_ID);
+
+        // when
+        String previous = generator.next();
+        for (int i = 0; i < 10_000; i++) {
+            String next = generator.next();
+
+            // then
+            assertTrue(next.compareTo(previous) > 0, previous + " < " + next);
+            previous = next;
+        }
+        assertEquals(15, previous.length());
+        assertTrue(previous.endsWith("zz"));
+        assertEquals("0000000000000" + "00", CorrelationIdGenerator.format(0, 0));
+        assertEquals("7zzzzzzzzzzzz" + "01", CorrelationIdGenerator.format(Long.MAX_VALUE, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CorrelationIdGenerator(CorrelationIdGenerator.MAX_NODE_ID + 1));
+    }
+
+    @Test
+    void shouldParseTraceIds() {
+        // when / then
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", Traceparent.parseTraceId("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"));
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", Traceparent.parseTraceId("4bf92f3577b34da6a3ce929d0e0e4736"));
+        assertNull(Traceparent.parseTraceId("00-00000000000000000000000000000000-00f067aa0ba902b7-01"));
+        assertNull(Traceparent.parseTraceId("00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01"));
+        assertNull(Traceparent.parseTraceId("abc"));
+        String traceId = Traceparent.newTraceId(new CorrelationIdGenerator(7));
+        assertEquals(traceId, Traceparent.parseTraceId(Traceparent.format(traceId, Traceparent.newParentId())));
+    }
+
+    @Test
+    void shouldReuseInboundIdAndPropagateHeader() {
+        // given
+        MDC.put("correlationId", "inbound-1");
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/a");
+        BasicHttpRequest unrelated = new BasicHttpRequest("GET", "/b");
+        unrelated.setHeader(RequestCorrelationIdLogProcessor.CORRELATION_ID_HEADER, "caller-2");
+
+        // when
+        String correlationId = process(new RequestCorrelationIdLogProcessor("correlationId", Propagation.HEADER), request);
+        String callerId = process(new RequestCorrelationIdLogProcessor("correlationId", Propagation.HEADER), unrelated);
+
+        // then
+        assertEquals("inbound-1", correlationId);
+        assertEquals("inbound-1", request.getFirstHeader(RequestCorrelationIdLogProcessor.CORRELATION_ID_HEADER).getValue());
+        assertEquals("caller-2", callerId);
+    }
+
+    @Test
+    void shouldPropagateTraceparentWithInboundTraceId() {
+        // given
+        MDC.put("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/a");
+        BasicHttpRequest generated = new BasicHttpRequest("GET", "/b");
+
+        // when
+        String traceId = process(new RequestCorrelationIdLogProcessor("traceparent", Propagation.TRACEPARENT), request);
+        String generatedTraceId = process(new RequestCorrelationIdLogProcessor(null, Propagation.TRACEPARENT), generated);
+
+        // then
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", traceId);
+        String traceparent = request.getFirstHeader(Traceparent.HEADER).getValue();
+        assertTrue(traceparent.startsWith("00-4bf92f3577b34da6a3ce929d0e0e4736-"), traceparent);
+        assertTrue(!traceparent.contains("00f067aa0ba902b7"), traceparent);
+        assertEquals(generatedTraceId, Traceparent.parseTraceId(generated.getFirstHeader(Traceparent.HEADER).getValue()));
+    }
+
+    private static String process(RequestCorrelationIdLogProcessor processor, BasicHttpRequest request) {
+        HttpContext context = new BasicHttpContext();
+        LogEvent event = LogEvent.begin(context);
+        processor.process(request, context);
+        return event.getText(LogField.REQUEST_HASH);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncLogDispatcherTest {
+
+    @Test
+    void shouldWriteEveryRecordOnceFromConcurrentProducers() throws InterruptedException {
+        // given
+        int producers = 4;
+        int recordsPerProducer = 10_000;
+        Set<String> written = ConcurrentHashMap.newKeySet();
+        LogRecordEmitter emitter = (logger, message, event, response) -> written.add(message);
+        List<Thread> threads = new ArrayList<>();
+
+        // when
+        AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(64, 2, OverflowPolicy.BLOCK);
+        for (int p = 0; p < producers; p++) {
+            String producer = "p" + p + "-";
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < recordsPerProducer; i++) {
+                    dispatcher.dispatch(emitter, null, producer + i, null, false);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        dispatcher.close();
+
+        // then
+        assertEquals(producers * recordsPerProducer, dispatcher.getDispatchedCount());
+        assertEquals(0, dispatcher.getDroppedCount());
+        assertEquals(producers * recordsPerProducer, written.size());
+    }
+
+    @Test
+    void shouldDropAndCountRecordsWhenRingIsFull() throws InterruptedException {
+        // given
+        CountDownLatch workerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LogRecordEmitter emitter = (logger, message, event, response) -> {
+            workerBusy.countDown();
+            awaitQuietly(release);
+        };
+
+        try (AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(2, 1, OverflowPolicy.DROP)) {
+            dispatcher.dispatch(emitter, null, "first", null, false);
+            assertTrue(workerBusy.await(5, TimeUnit.SECONDS));
+
+            // when
+            dispatcher.dispatch(emitter, null, "second", null, false);
+            dispatcher.dispatch(emitter, null, "third", null, false);
+            boolean accepted = dispatcher.dispatch(emitter, null, "fourth", null, false);
+            release.countDown();
+
+            // then
+            assertFalse(accepted);
+            assertEquals(1, dispatcher.getDroppedCount());
+            assertEquals(3, dispatcher.getDispatchedCount());
+            assertEquals(2, dispatcher.getCapacity());
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
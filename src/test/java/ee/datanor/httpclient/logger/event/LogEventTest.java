@@ -0,0 +1,115 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.event;
+
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LogEventTest {
+
+    @Test
+    void shouldRenderValuesOnceAndLeaveResponseFieldsOutOfRequestRecord() {
+        // given
+        LogEvent event = LogEvent.begin(new BasicHttpContext());
+        event.set(LogField.REQUEST_LINE, "GET /a\nb");
+        event.set(LogField.REQUEST_BODY, "");
+        event.set("HC_CUSTOM", 42);
+        event.set(LogField.RESPONSE_STATUS, 200);
+
+        // when
+        Map<String, String> requestRecord = new LinkedHashMap<>();
+        event.forEachText(false, requestRecord::put);
+
+        // then
+        assertEquals(Map.of("HC_REQUEST_LINE", "GET /a\\nb", "HC_REQUEST_BODY", "-", "HC_CUSTOM", "42"), requestRecord);
+        assertEquals("GET /a\\nb", event.getText(LogField.REQUEST_LINE));
+        assertEquals("200", event.getText("HC_RESPONSE_STATUS"));
+    }
+
+    @Test
+    void shouldLeaveKeysSetForResponseOutOfRequestRecordWrittenLater() {
+        // given
+        LogEvent event = LogEvent.begin(new BasicHttpContext());
+        event.set(LogField.REQUEST_LINE, "GET /a");
+        event.set("HC_CUSTOM", "request");
+        event.beginResponse();
+        event.set("HC_CUSTOM", "response");
+        event.set("HC_RESPONSE_CUSTOM", 1);
+
+        // when
+        Map<String, String> requestRecord = new LinkedHashMap<>();
+        event.forEachText(false, requestRecord::put);
+        Map<String, Object> responseRecord = new LinkedHashMap<>();
+        event.forEachValue(true, responseRecord::put);
+
+        // then
+        assertEquals(Map.of("HC_REQUEST_LINE", "GET /a", "HC_CUSTOM", "request"), requestRecord);
+        assertEquals(Map.of("HC_REQUEST_LINE", "GET /a", "HC_CUSTOM", "response", "HC_RESPONSE_CUSTOM", 1), responseRecord);
+        assertEquals("response", event.get("HC_CUSTOM"));
+    }
+
+    @Test
+    void shouldRenderRecordFromCompiledTemplate() {
+        // given
+        RecordTemplate template = RecordTemplate.compile("REQ\t%X{HC_REQUEST_LINE}\t%X{HC_REQUEST_BODY}\t%X{HC_CUSTOM}\t%X{HC_RESPONSE_STATUS}|");
+        LogEvent event = LogEvent.begin(new BasicHttpContext());
+        event.set(LogField.REQUEST_LINE, "GET /a\nb");
+        event.set(LogField.REQUEST_BODY, LazyValue.of(() -> "{\"a\":\"\tb\"}"));
+        event.set("HC_CUSTOM", 42);
+
+        // when
+        String record = template.render(event);
+
+        // then
+        assertEquals("REQ\tGET /a\\nb\t{\"a\":\"\\tb\"}\t42\t-|", record);
+        assertEquals("GET /a\\nb", event.getText(LogField.REQUEST_LINE));
+        assertEquals(record, template.render(event));
+        assertEquals("static", RecordTemplate.compile("static").render(event));
+        assertThrows(IllegalArgumentException.class, () -> RecordTemplate.compile("%X{HC_REQUEST_LINE"));
+    }
+
+    @Test
+    void shouldReuseEventOnlyWhenNoRecordIsPending() {
+        // given
+        HttpContext context = new BasicHttpContext();
+        LogEvent first = LogEvent.begin(context);
+        first.set(LogField.REQUEST_LINE, "GET /a");
+
+        // when
+        first.hold();
+        LogEvent whileHeld = LogEvent.begin(context);
+        whileHeld.set(LogField.REQUEST_LINE, "GET /b");
+        LogEvent next = LogEvent.begin(context);
+
+        // then
+        assertNotSame(first, whileHeld);
+        assertSame(whileHeld, next);
+        assertSame(next, LogEvent.find(context));
+        assertEquals("GET /a", first.get(LogField.REQUEST_LINE));
+        assertNull(next.get(LogField.REQUEST_LINE));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.masker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class JsonBodyMaskerTest {
+
+    @Test
+    void shouldMaskFieldsByNameAndPath() {
+        // given
+        JsonBodyMasker masker = new JsonBodyMasker(Set.of("PASSWORD", "iban", "$.customer.*.ssn", "$.tokens[*]"));
+        String body = "{\"Password\" : \"a\\\"b\", \"pass\\u0077ord\":12,\"account\":{\"iban\":{\"n\":\"EE1\"}},"
+                + "\"customer\":{\"home\":{\"ssn\":\"1\",\"name\":\"x\"},\"ssn\":\"2\"},\"ssn\":\"3\",\"tokens\":[\"t1\",[\"t2\"]],\"n\":null}";
+
+        // when
+        String masked = masker.mask(body);
+
+        // then
+        assertEquals("{\"Password\" : \"***\", \"pass\\u0077ord\":\"***\",\"account\":{\"iban\":\"***\"},"
+                + "\"customer\":{\"home\":{\"ssn\":\"***\",\"name\":\"x\"},\"ssn\":\"2\"},\"ssn\":\"3\",\"tokens\":[\"***\",\"***\"],\"n\":null}", masked);
+    }
+
+    @Test
+    void shouldMaskTruncatedBodyOnlyForJson() {
+        // given
+        JsonBodyMasker masker = new JsonBodyMasker(Set.of("accessToken"));
+        MaskingEngine engine = MaskingEngine.compile(List.of(masker, new BodyMasker("pin=(\\d+)")));
+        String truncated = "{\"user\":\"pin=12\",\"accessToken\":\"eyJhbGciOiJI";
+
+        // when / then
+        assertEquals("{\"user\":\"pin=***\",\"accessToken\":\"***\"", engine.mask(truncated, "application/json"));
+        assertEquals("{\"user\":\"pin=***\",\"accessToken\":\"eyJhbGciOiJI", engine.mask(truncated, "text/plain"));
+        assertEquals(1L, engine.getHitCounts().get(masker));
+        String clean = "[{\"user\":\"u\"}, [], {}]";
+        assertSame(clean, masker.mask(clean));
+    }
+}
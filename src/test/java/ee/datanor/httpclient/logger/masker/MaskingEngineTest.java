@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.masker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class MaskingEngineTest {
+
+    @Test
+    void shouldMaskAllPatternsInOnePass() {
+        // given
+        BodyMasker password = new BodyMasker("\"password\":\"([^\"]*)\"");
+        BodyMasker card = new BodyMasker("\"card\":\"(\\d{4})\\d{8}(\\d{4})\"");
+        BodyMasker unused = new BodyMasker("<secret>([^<]*)</secret>");
+        MaskingEngine engine = MaskingEngine.compile(List.of(password, card, unused));
+        String body = "{\"password\":\"p1\",\"card\":\"1234567812345678\",\"items\":[{\"password\":\"p2\"}]}";
+
+        // when
+        String masked = engine.mask(body);
+
+        // then
+        assertEquals("{\"password\":\"***\",\"card\":\"***56781234***\",\"items\":[{\"password\":\"***\"}]}", masked);
+        assertEquals(Map.of(password, 2L, card, 1L, unused, 0L), engine.getHitCounts());
+        String clean = body.replace("password", "name").replace("card", "id");
+        assertSame(clean, engine.mask(clean));
+    }
+
+    @Test
+    void shouldApplyMaskersWithBackReferences() {
+        // given
+        BodyMasker quoted = new BodyMasker("token=(['\"])([^'\"]*)\\1");
+        BodyMasker pin = new BodyMasker("pin=(\\d+)");
+        MaskingEngine engine = MaskingEngine.compile(List.of(quoted, pin));
+        String body = "token='abc' pin=1234 token=\"def\"";
+
+        // when
+        String masked = engine.mask(body);
+
+        // then
+        assertEquals("token=******' pin=*** token=******\"", masked);
+        assertEquals(Map.of(quoted, 2L, pin, 1L), engine.getHitCounts());
+    }
+
+    @Test
+    void shouldMaskOverlappingMatchesOfDifferentMaskers() {
+        // given
+        BodyMasker name = new BodyMasker("\"name\":\"(\\w+)\",\"ssn\"");
+        BodyMasker ssn = new BodyMasker("\"ssn\":\"(\\d+)\"");
+        String body = "{\"name\":\"alice\",\"ssn\":\"38001010000\"}";
+
+        // when
+        String masked = MaskingEngine.compile(List.of(name, ssn)).mask(body);
+
+        // then
+        assertEquals("{\"name\":\"***\",\"ssn\":\"***\"}", masked);
+        assertEquals(masked, MaskingEngine.compile(List.of(ssn, name)).mask(body));
+        assertEquals(masked, ssn.mask(name.mask(body)));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.masker;
+
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
+import ee.datanor.httpclient.logger.processor.request.RequestLineLogProcessor;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UrlMaskerTest {
+
+    @Test
+    void shouldMaskQueryParametersByName() {
+        // given
+        UrlMasker masker = new UrlMasker(Set.of("token", "api_key"));
+
+        // when / then
+        assertEquals("http://host:8080/a?TOKEN=***&x=1&api%5Fkey=***&token=#token=1", masker.mask("http://host:8080/a?TOKEN=s1&x=1&api%5Fkey=s2&token=#token=1"));
+        assertEquals("/a?x=http://b/c&token=***", masker.mask("/a?x=http://b/c&token=s"));
+        String clean = "http://host/token/a?tokens=1&x";
+        assertSame(clean, masker.mask(clean));
+    }
+
+    @Test
+    void shouldMaskPathSegmentsByPositionAndPattern() {
+        // given
+        UrlMasker masker = new UrlMasker(Set.of(), Set.of(1), Set.of("\\d{11}", "[0-9a-f]{8}-[0-9a-f-]{27}"));
+
+        // when / then
+        assertEquals("https://host/customers/***/cards/***?id=39001010000",
+                masker.mask("https://host/customers/39001010000/cards/c0ffee00-0000-4000-8000-000000000000?id=39001010000"));
+        assertEquals("/v1/***/x/***/", masker.mask("/v1/accounts/x/12345678901/"));
+    }
+
+    @Test
+    void shouldMaskParametersMatchingRegexOfParameterMaskers() {
+        // given
+        RequestLineLogProcessor processor = new RequestLineLogProcessor(Set.of(
+                new ParameterMasker("access_token|refresh_token"), new ParameterMasker("pass.*"), new ParameterMasker("pin")));
+        HttpContext context = new BasicHttpContext();
+        LogEvent event = LogEvent.begin(context);
+
+        // when
+        processor.process(new BasicHttpRequest("GET", "/a?ACCESS_TOKEN=a&refresh_token=r&passWord=p&pin=1&pins=2&token=t"), context);
+
+        // then
+        assertEquals("GET /a?ACCESS_TOKEN=***&refresh_token=***&passWord=***&pin=***&pins=2&token=t", event.getText(LogField.REQUEST_LINE));
+        assertTrue(new ParameterMasker("pass.*").isPattern());
+        assertFalse(new ParameterMasker("api_key").isPattern());
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.masker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class XmlBodyMaskerTest {
+
+    @Test
+    void shouldMaskElementsAndAttributesByLocalName() {
+        // given
+        XmlBodyMasker masker = new XmlBodyMasker(Set.of("password", "card"), Set.of("pin"));
+        String body = "<?xml version=\"1.0\"?>\n<s:Envelope xmlns:s=\"urn:s\" xmlns:ns=\"urn:ns\"><s:Body a='1' s:PIN = \"2&amp;3\">"
+                + "<ns:Password><![CDATA[x<y]]></ns:Password><card><no>1234</no></card><empty/><name>n</name></s:Body></s:Envelope>";
+
+        // when
+        String masked = masker.mask(body);
+
+        // then
+        assertEquals("<?xml version=\"1.0\"?>\n<s:Envelope xmlns:s=\"urn:s\" xmlns:ns=\"urn:ns\"><s:Body a='1' s:PIN = \"***\">"
+                + "<ns:Password>***</ns:Password><card>***</card><empty/><name>n</name></s:Body></s:Envelope>", masked);
+        String clean = body.replace("PIN", "id").replace("Password", "user").replace("card", "cart");
+        assertSame(clean, masker.mask(clean));
+    }
+
+    @Test
+    void shouldMaskTruncatedAndOverBudgetBodies() {
+        // given
+        XmlBodyMasker masker = new XmlBodyMasker(Set.of("password"));
+        XmlBodyMasker budget = new XmlBodyMasker(Set.of("password"), Set.of(), 20);
+        String body = "<r><user>u</user><password>secret</password><name>n</name></r>";
+
+        // when / then
+        assertEquals("<r><user>u</user><password>***", masker.mask(body.substring(0, 33)));
+        assertEquals("<r><user>u</user>***", masker.mask(body.substring(0, 26)));
+        assertEquals("<r><user>u</user><name>n</na", masker.mask(body.replace("<password>secret</password>", "").substring(0, 28)));
+        assertEquals("<r><user>u</user><password>***", budget.mask(body));
+        assertEquals("<r><user>u</user><pwd>***", budget.mask(body.replace("password", "pwd")));
+    }
+}
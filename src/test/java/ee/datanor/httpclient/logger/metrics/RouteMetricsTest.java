@@ -0,0 +1,80 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.metrics;
+
+import org.apache.hc.core5.http.HttpHost;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RouteMetricsTest {
+
+    @Test
+    void shouldBucketValuesWithBoundedRelativeError() {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // when
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        histogram.record(Long.MAX_VALUE);
+        HistogramSnapshot snapshot = histogram.snapshotAndReset();
+
+        // then
+        assertEquals(1001, snapshot.getCount());
+        assertEquals(Long.MAX_VALUE, snapshot.getMax());
+        assertWithinBucketError(TimeUnit.MILLISECONDS.toNanos(500), snapshot.getValueAtPercentile(50));
+        assertWithinBucketError(TimeUnit.MILLISECONDS.toNanos(990), snapshot.getValueAtPercentile(99));
+        assertEquals(0, histogram.snapshot().getCount());
+        for (int i = 1; i < LatencyHistogram.BUCKETS; i++) {
+            long lowerBound = LatencyHistogram.bucketLowerBound(i);
+            assertEquals(i, LatencyHistogram.bucketIndex(lowerBound));
+            assertEquals(i - 1, LatencyHistogram.bucketIndex(lowerBound - 1));
+        }
+    }
+
+    @Test
+    void shouldKeepHistogramPerHostMethodRouteAndStatusClass() {
+        // given
+        RouteMetrics metrics = new RouteMetrics();
+        HttpHost host = new HttpHost("https", "api.example.com", 443);
+
+        // when
+        metrics.record(host, "GET", RouteMetrics.ANY_ROUTE, 200, 1_000_000);
+        metrics.record(new HttpHost("https", "api.example.com", 443), "GET", RouteMetrics.ANY_ROUTE, 204, 3_000_000);
+        metrics.record(host, "GET", RouteMetrics.ANY_ROUTE, 503, 5_000_000);
+        metrics.record(host, "POST", RouteMetrics.ANY_ROUTE, RouteMetrics.FAILED, 7_000_000);
+        List<RouteSnapshot> snapshots = metrics.snapshotAndReset();
+
+        // then
+        assertEquals(3, snapshots.size());
+        RouteSnapshot ok = snapshots.stream().filter(s -> "GET".equals(s.getMethod()) && s.getStatusClass() == 2).findFirst().orElseThrow();
+        assertEquals("https://api.example.com:443", ok.getHost());
+        assertEquals(2, ok.getHistogram().getCount());
+        assertEquals(4_000_000, ok.getHistogram().getSum());
+        assertTrue(metrics.snapshot().stream().allMatch(s -> s.getHistogram().getCount() == 0));
+    }
+
+    private static void assertWithinBucketError(long expected, long actual) {
+        assertTrue(Math.abs(expected - actual) <= expected / LatencyHistogram.SUB_BUCKETS, expected + " ~ " + actual);
+    }
+}
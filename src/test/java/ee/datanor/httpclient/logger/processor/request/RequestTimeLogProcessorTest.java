@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.processor.request;
+
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class RequestTimeLogProcessorTest {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-02T03:04:05.123456Z"), ZoneOffset.UTC);
+
+    @Test
+    void shouldReuseDefaultFormatWithinMillisecond() {
+        // given
+        RequestTimeLogProcessor processor = new RequestTimeLogProcessor(CLOCK);
+
+        // when
+        Object first = process(processor);
+        Object second = process(processor);
+
+        // then
+        assertEquals("2024-01-02T03:04:05.123Z", first);
+        assertSame(first, second);
+    }
+
+    @Test
+    void shouldKeepSubMillisecondFieldsOfCustomFormat() {
+        // given
+        RequestTimeLogProcessor processor = new RequestTimeLogProcessor(DateTimeFormatter.ofPattern("HH:mm:ss.SSSSSS"), CLOCK);
+
+        // when
+        Object time = process(processor);
+
+        // then
+        assertEquals("03:04:05.123456", time);
+    }
+
+    private static Object process(RequestTimeLogProcessor processor) {
+        HttpContext context = new BasicHttpContext();
+        LogEvent event = LogEvent.begin(context);
+        processor.process(new BasicHttpRequest("GET", "/"), context);
+        return event.get(LogField.REQUEST_TIME);
+    }
+}
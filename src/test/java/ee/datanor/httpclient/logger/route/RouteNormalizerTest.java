@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.route;
+
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RouteNormalizerTest {
+
+    @Test
+    void shouldReplaceNumericUuidAndHexSegments() {
+        // given
+        RouteNormalizer normalizer = new RouteNormalizer();
+
+        // when / then
+        assertEquals("/users/{id}/orders/{id}", normalizer.normalize("/users/9d1f6c2e-3b4a-4f5e-8a7b-1c2d3e4f5a6b/orders/123"));
+        assertEquals("/blobs/{id}/v2/cafe", normalizer.normalize("/blobs/5f2b9c0e1a7d/v2/cafe"));
+        assertEquals("/users/{id}", normalizer.normalize(new BasicHttpRequest("GET", "/users/42?token=secret#top")));
+        assertEquals("/", normalizer.normalize(""));
+        String path = "/health/live";
+        assertSame(path, normalizer.normalize(path));
+    }
+
+    @Test
+    void shouldPreferConfiguredTemplatesAndLiteralSegments() {
+        // given
+        RouteNormalizer normalizer = new RouteNormalizer(List.of("/customers/{customer}/accounts/{iban}", "/customers/me/accounts/{iban}",
+                "/files/{name}"), false, 2);
+
+        // when / then
+        assertEquals("/customers/{customer}/accounts/{iban}", normalizer.normalize("/customers/alice/accounts/EE382200221020145685"));
+        assertEquals("/customers/me/accounts/{iban}", normalizer.normalize("/customers/me/accounts/EE382200221020145685"));
+        assertEquals("/files/{name}", normalizer.normalize("/files/report.pdf"));
+        assertEquals("/files/report.pdf/versions/7", normalizer.normalize("/files/report.pdf/versions/7"));
+        assertEquals("/customers/{customer}/accounts/{iban}", normalizer.normalize("/customers/bob/accounts/EE1"));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedPaths() {
+        // given
+        RouteNormalizer normalizer = new RouteNormalizer(List.of(), true, 2);
+
+        // when
+        normalizer.normalize("/users/1");
+        normalizer.normalize("/users/2");
+        normalizer.normalize("/users/1");
+        normalizer.normalize("/users/3");
+
+        // then
+        assertTrue(normalizer.isCached("/users/1"));
+        assertFalse(normalizer.isCached("/users/2"));
+        assertTrue(normalizer.isCached("/users/3"));
+        assertEquals("/users/{id}", normalizer.normalize("/users/2"));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.sampling;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LogSamplerTest {
+
+    @Test
+    void shouldResolveMostSpecificRate() {
+        // given
+        LogSampler sampler = LogSampler.rate(0.01)
+                .withMethodRate("post", 0.5)
+                .withHostRate("Payments.example.com", 1)
+                .withPathPrefixRate("/health", 0)
+                .withPathPrefixRate("/health/deep", 0.2);
+
+        // when / then
+        assertEquals(0.01, sampler.resolveRate("GET", "api.example.com", "/orders"));
+        assertEquals(0.5, sampler.resolveRate("POST", "api.example.com", "/orders"));
+        assertEquals(1, sampler.resolveRate("POST", "payments.example.com", "/orders"));
+        assertEquals(0, sampler.resolveRate("POST", "payments.example.com", "/health"));
+        assertEquals(0.2, sampler.resolveRate("GET", "api.example.com", "/health/deep/db"));
+        assertThrows(IllegalArgumentException.class, () -> sampler.withHostRate("x", 1.5));
+    }
+
+    @Test
+    void shouldMatchPathPrefixOnSegmentBoundaries() {
+        // given
+        LogSampler sampler = LogSampler.rate(1)
+                .withPathPrefixRate("/health", 0)
+                .withPathPrefixRate("/static/", 0.5);
+
+        // when / then
+        assertEquals(0, sampler.resolveRate("GET", null, "/health"));
+        assertEquals(0, sampler.resolveRate("GET", null, "/health/live"));
+        assertEquals(1, sampler.resolveRate("GET", null, "/healthcheck"));
+        assertEquals(1, sampler.resolveRate("GET", null, "/health-admin"));
+        assertEquals(1, sampler.resolveRate("GET", null, "/static"));
+        assertEquals(0.5, sampler.resolveRate("GET", null, "/static/app.js"));
+        assertEquals(0.5, LogSampler.rate(1).withPathPrefixRate("/", 0.5).resolveRate("GET", null, "/orders"));
+    }
+
+    @Test
+    void shouldSampleByRequest() {
+        // given
+        LogSampler sampler = LogSampler.rate(1).withPathPrefixRate("/internal", 0).withSummary(true);
+        HttpGet internal = new HttpGet("http://api.example.com/internal/status?token=secret");
+
+        // when / then
+        assertTrue(sampler.sample(new HttpGet("http://api.example.com/orders"), null));
+        assertFalse(sampler.sample(internal, null));
+        assertEquals("GET api.example.com/internal/status", sampler.summarize(internal, null));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.sink;
+
+import ee.datanor.httpclient.logger.event.LazyValue;
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedSegmentSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldWriteConcurrentlyAndRollSegments() throws Exception {
+        // given
+        MappedSegmentSink sink = new MappedSegmentSink(directory, "exchange", 4096, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        for (int thread = 0; thread < 4; thread++) {
+            int id = thread;
+            executor.execute(() -> {
+                for (int i = 0; i < 200; i++) {
+                    LogEvent event = LogEvent.begin(new BasicHttpContext());
+                    event.set(LogField.REQUEST_HASH, id + "-" + i);
+                    event.set(LogField.REQUEST_BODY, "x".repeat(300));
+                    event.set(LogField.RESPONSE_STATUS, 200);
+                    sink.write(event, i % 2 == 1);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        sink.close();
+
+        // then
+        List<ExchangeRecord> records = SegmentReader.readAll(directory);
+        assertEquals(800, sink.getWrittenCount());
+        assertEquals(800, records.size());
+        assertTrue(SegmentReader.listSegments(directory).size() > 10);
+        assertEquals(800, records.stream().map(exchangeRecord -> exchangeRecord.get("HC_REQUEST_HASH")).collect(Collectors.toSet()).size());
+        assertEquals(Set.of(100), records.stream().map(exchangeRecord -> exchangeRecord.get("HC_REQUEST_BODY").length()).collect(Collectors.toSet()));
+        assertEquals(400, records.stream().filter(exchangeRecord -> "200".equals(exchangeRecord.get("HC_RESPONSE_STATUS"))).count());
+        assertTrue(records.stream().allMatch(exchangeRecord -> exchangeRecord.isResponse() == exchangeRecord.getFields().containsKey("HC_RESPONSE_STATUS")));
+    }
+
+    @Test
+    void shouldDecodeRecordsAsTextAndNdjson() throws Exception {
+        // given
+        MappedSegmentSink sink = new MappedSegmentSink(directory, "exchange", 4096, 7);
+        LogEvent event = LogEvent.begin(new BasicHttpContext());
+        event.set(LogField.REQUEST_LINE, "GET /\nb");
+        event.set(LogField.REQUEST_BODY, LazyValue.of(() -> "{\"a\":\"õõ\"}"));
+        event.set("HC_CUSTOM", 42);
+        LogEvent large = LogEvent.begin(new BasicHttpContext());
+        large.set("HC_" + "X".repeat(5000), 1);
+
+        // when
+        sink.write(event, false);
+        sink.write(large, false);
+        sink.close();
+        sink.write(event, true);
+
+        // then
+        List<ExchangeRecord> records = SegmentReader.readAll(directory);
+        assertEquals(1, records.size());
+        assertEquals(2, sink.getDroppedCount());
+        ExchangeRecord exchangeRecord = records.get(0);
+        assertEquals("{\"a\":\"", exchangeRecord.get("HC_REQUEST_BODY"));
+        String time = exchangeRecord.toText().split("\t")[1];
+        assertEquals("REQ\t" + time + "\tHC_REQUEST_LINE=GET /\\nb\tHC_REQUEST_BODY={\"a\":\"\tHC_CUSTOM=42", exchangeRecord.toText());
+        assertEquals("{\"type\":\"request\",\"time\":\"" + time + "\",\"HC_REQUEST_LINE\":\"GET /\\nb\",\"HC_REQUEST_BODY\":\"{\\\"a\\\":\\\"\",\"HC_CUSTOM\":\"42\"}",
+                exchangeRecord.toNdjson());
+    }
+
+    @Test
+    void shouldSkipRecordReservedButNotCompleted() throws Exception {
+        // given
+        MappedSegmentSink sink = new MappedSegmentSink(directory, "exchange", 4096, 100);
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            LogEvent event = LogEvent.begin(new BasicHttpContext());
+            event.set(LogField.REQUEST_HASH, "hash-" + i);
+            sink.write(event, false);
+            if (i == 0) {
+                // as left by a writer that reserved the space and died before writing the record
+                sink.reserve(64);
+            }
+        }
+        sink.close();
+
+        // then
+        List<ExchangeRecord> records = SegmentReader.readAll(directory);
+        assertEquals(List.of("hash-0", "hash-1", "hash-2"), records.stream().map(exchangeRecord -> exchangeRecord.get("HC_REQUEST_HASH")).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.sink;
+
+import ee.datanor.httpclient.logger.event.LazyValue;
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NdjsonSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldEncodeRecordsAsUtf8Ndjson() throws Exception {
+        // given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NdjsonSink sink = new NdjsonSink(out, 64, null);
+        LogEvent event = LogEvent.begin(new BasicHttpContext());
+        event.set(LogField.REQUEST_LINE, "GET /a\tb");
+        event.set(LogField.REQUEST_BODY, LazyValue.of(() -> "{\"a\":\"õ\u0085😀\\\uD800\"}"));
+        event.set(LogField.RESPONSE_STATUS, 200);
+        event.set("HC_\"CUSTOM\"", "x");
+
+        // when
+        sink.write(event, false);
+        sink.write(event, true);
+        sink.flush();
+
+        // then
+        List<String> lines = List.of(out.toString(StandardCharsets.UTF_8).split("\n"));
+        assertEquals(2, lines.size());
+        String time = lines.get(0).substring(26, lines.get(0).indexOf('"', 26));
+        String body = ",\"HC_REQUEST_LINE\":\"GET /a\\tb\",\"HC_REQUEST_BODY\":\"{\\\"a\\\":\\\"õ\\u0085😀\\\\?\\\"}\"";
+        assertEquals("{\"type\":\"request\",\"time\":\"" + time + "\"" + body + ",\"HC_\\\"CUSTOM\\\"\":\"x\"}", lines.get(0));
+        assertTrue(lines.get(1).endsWith(body + ",\"HC_RESPONSE_STATUS\":\"200\",\"HC_\\\"CUSTOM\\\"\":\"x\"}"));
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("HC_REQUEST_LINE", "GET /a\tb");
+        fields.put("HC_REQUEST_BODY", "{\"a\":\"õ\u0085😀\\?\"}");
+        fields.put("HC_RESPONSE_STATUS", "200");
+        fields.put("HC_\"CUSTOM\"", "x");
+        String responseTime = lines.get(1).substring(27, lines.get(1).indexOf('"', 27));
+        assertEquals(new ExchangeRecord(true, Instant.parse(responseTime).toEpochMilli(), fields).toNdjson(), lines.get(1));
+        assertEquals(2, sink.getWrittenCount());
+    }
+
+    @Test
+    void shouldBatchConcurrentWritesToFileChannel() throws Exception {
+        // given
+        Path file = directory.resolve("exchanges.ndjson");
+        NdjsonSink sink = new NdjsonSink(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE), 1024, Duration.ofMillis(10), true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        for (int thread = 0; thread < 4; thread++) {
+            int id = thread;
+            executor.execute(() -> {
+                for (int i = 0; i < 250; i++) {
+                    LogEvent event = LogEvent.begin(new BasicHttpContext());
+                    event.set(LogField.REQUEST_HASH, id + "-" + i);
+                    event.set(LogField.REQUEST_BODY, "x".repeat(i * 10));
+                    sink.write(event, false);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        sink.close();
+
+        // then
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(1000, sink.getWrittenCount());
+        assertEquals(1000, lines.size());
+        assertTrue(lines.stream().allMatch(line -> line.startsWith("{\"type\":\"request\"") && line.endsWith("\"}")));
+        assertEquals(1000, lines.stream().map(line -> line.substring(line.indexOf("HC_REQUEST_HASH"), line.indexOf(",\"HC_REQUEST_BODY"))).collect(Collectors.toSet()).size());
+        for (int thread = 0; thread < 4; thread++) {
+            String prefix = "\"HC_REQUEST_HASH\":\"" + thread + "-";
+            List<Integer> order = lines.stream().filter(line -> line.contains(prefix))
+                    .map(line -> Integer.parseInt(line.substring(line.indexOf(prefix) + prefix.length(), line.indexOf("\",\"HC_REQUEST_BODY"))))
+                    .toList();
+            assertEquals(IntStream.range(0, 250).boxed().toList(), order);
+        }
+    }
+
+    @Test
+    void shouldFlushBatchOnDefaultInterval() throws Exception {
+        // given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NdjsonSink sink = new NdjsonSink(out);
+        LogEvent event = LogEvent.begin(new BasicHttpContext());
+        event.set(LogField.REQUEST_LINE, "GET /a");
+
+        // when
+        sink.write(event, false);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sink.getWrittenCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // then
+        assertEquals(1, sink.getWrittenCount());
+        assertTrue(out.toString(StandardCharsets.UTF_8).endsWith(",\"HC_REQUEST_LINE\":\"GET /a\"}\n"));
+        sink.close();
+    }
+}
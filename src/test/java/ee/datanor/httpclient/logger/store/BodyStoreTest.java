@@ -0,0 +1,113 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ee.datanor.httpclient.logger.store;
+
+import ee.datanor.httpclient.logger.capture.ContentDecoderRegistry;
+import ee.datanor.httpclient.logger.event.LogEvent;
+import ee.datanor.httpclient.logger.event.LogField;
+import ee.datanor.httpclient.logger.masker.JsonBodyMasker;
+import ee.datanor.httpclient.logger.processor.request.RequestBodyLogProcessor;
+import ee.datanor.httpclient.logger.util.Xxh64;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpRequest;
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class BodyStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldHashWithXxh64() {
+        // given
+        byte[] text = "Nobody inspects the spammish repetition".getBytes(StandardCharsets.US_ASCII);
+
+        // when / then
+        assertEquals(0xef46db3751d8e999L, Xxh64.hash(new byte[0], 0, 0, 0));
+        assertEquals(0xd24ec4f1a98c6e5bL, Xxh64.hash(text, 22, 1, 0));
+        assertEquals(0xfbcea83c8a378bf1L, Xxh64.hash(text, 0, text.length, 0));
+    }
+
+    @Test
+    void shouldStoreEachBodyOnce() throws Exception {
+        // given
+        Path file = directory.resolve("bodies.log");
+        BodyStore store = new BodyStore(file, 16);
+        AtomicInteger rendered = new AtomicInteger();
+
+        // when
+        String first = store.store(42, 10, () -> "body\t" + rendered.incrementAndGet());
+        String second = store.store(42, 10, () -> "body\t" + rendered.incrementAndGet());
+        String other = store.store(43, 5, () -> "other");
+        store.close();
+
+        // then
+        assertEquals("xxh64:000000000000002a:10", first);
+        assertEquals(first, second);
+        assertEquals("xxh64:000000000000002b:5", other);
+        assertEquals(1, rendered.get());
+        assertEquals(2, store.getStoredCount());
+        assertEquals(1, store.getDeduplicatedCount());
+        assertEquals("000000000000002a\tbody\\t1\n000000000000002b\tother\n", Files.readString(file));
+        assertEquals("body\\t1", BodyStore.find(file, first));
+        assertNull(BodyStore.find(file, "xxh64:000000000000002c:1"));
+    }
+
+    @Test
+    void shouldLogReferenceToMaskedBody() throws Exception {
+        // given
+        Path file = directory.resolve("bodies.log");
+        BodyStore store = new BodyStore(file);
+        RequestBodyLogProcessor processor = new RequestBodyLogProcessor(2048, Set.of(new JsonBodyMasker(Set.of("password"))), Set.of("json"),
+                ContentDecoderRegistry.defaults(), store);
+        String body = "{\"user\":\"u\",\"password\":\"p\"}";
+
+        // when
+        String[] references = new String[3];
+        for (int i = 0; i < references.length; i++) {
+            HttpContext context = new BasicHttpContext();
+            LogEvent event = LogEvent.begin(context);
+            BasicClassicHttpRequest request = new BasicClassicHttpRequest("POST", "/login");
+            request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+            request.setHeader("Content-Type", ContentType.APPLICATION_JSON.toString());
+            processor.process(request, context);
+            references[i] = event.getText(LogField.REQUEST_BODY);
+        }
+        store.close();
+
+        // then
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        assertEquals(BodyStore.reference(Xxh64.hash(bytes, 0, bytes.length, 0), bytes.length), references[0]);
+        assertEquals(references[0], references[2]);
+        assertEquals(1, Files.readAllLines(file).size());
+        assertEquals("{\"user\":\"u\",\"password\":\"***\"}", BodyStore.find(file, references[1]));
+    }
+}
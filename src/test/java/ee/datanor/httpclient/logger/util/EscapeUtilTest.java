@@ -0,0 +1,93 @@
+/*
+ * Copyright 2023 Datanor OÜ.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ee.datanor.httpclient.logger.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class EscapeUtilTest {
+
+    @Test
+    void shouldReturnSameInstanceWhenNothingToEscape() {
+        // given
+        String value = "{\"name\":\"õun €\"}";
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+
+        // when / then
+        assertSame(value, EscapeUtil.escape(value));
+        assertSame(utf8, EscapeUtil.escapeUtf8(utf8));
+        assertNull(EscapeUtil.escape(null));
+    }
+
+    @Test
+    void shouldEscapeSameCharactersAsReplaceEach() throws IOException {
+        // given
+        StringBuilder everyCharacter = new StringBuilder();
+        for (char c = 0; c < 0x800; c++) {
+            everyCharacter.append('a').append(c);
+        }
+        String value = everyCharacter.toString();
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        String expected = replaceEach(value);
+
+        // when
+        StringBuilder builder = new StringBuilder("x");
+        EscapeUtil.escape(value, builder);
+        StringWriter writer = new StringWriter();
+        EscapeUtil.escape(value, writer);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EscapeUtil.escapeUtf8(utf8, 1, utf8.length - 1, bytes);
+
+        // then
+        assertEquals(expected, EscapeUtil.escape(value));
+        assertEquals("x" + expected, builder.toString());
+        assertEquals(expected, writer.toString());
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), EscapeUtil.escapeUtf8(utf8));
+        assertEquals(expected.substring(1), bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The former implementation, kept as the reference.
+     */
+    private static String replaceEach(String value) {
+        List<String> shortSearch = Arrays.asList("\b", "\n", "\t", "\f", "\r", "\\");
+        List<String> search = new ArrayList<>();
+        List<String> replacement = new ArrayList<>();
+        for (int c = 0x00; c <= 0x9f; c++) {
+            if ((c <= 0x1f || c >= 0x7f) && !shortSearch.contains(String.valueOf((char) c))) {
+                search.add(String.valueOf((char) c));
+                replacement.add(String.format("\\u00%02X", c));
+            }
+        }
+        search.addAll(shortSearch);
+        replacement.addAll(Arrays.asList("\\b", "\\n", "\\t", "\\f", "\\r", "\\\\"));
+        return StringUtils.replaceEach(value, search.toArray(new String[0]), replacement.toArray(new String[0]));
+    }
+}